@@ -18,26 +18,130 @@ package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
 
 import android.app.Activity;
 import android.content.ComponentName;
+import android.net.Uri;
 import android.os.Bundle;
 import android.support.wearable.companion.WatchFaceCompanion;
+import android.util.Log;
 import android.widget.TextView;
 
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.DataItem;
+import com.google.android.gms.wearable.DataMap;
+import com.google.android.gms.wearable.DataMapItem;
+import com.google.android.gms.wearable.PutDataRequest;
+import com.google.android.gms.wearable.Wearable;
+
 import jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface.R;
 // TODO: [2015-04-29 12:43]
 // プロジェクトのパッケージ名をgresregですべて変更したら、
 // 何故かRが認識しなくなったので、インポート文を追加した。
 
-public class CalendarWatchFaceConfigActivity extends Activity {
+public class CalendarWatchFaceConfigActivity extends Activity
+        implements GoogleApiClient.ConnectionCallbacks, GoogleApiClient.OnConnectionFailedListener,
+        ResultCallback<DataApi.DataItemResult> {
+
+    private static final String TAG = "CalendarWatchFaceConfig";
+
+    /** Google APIのクライアント */
+    private GoogleApiClient mGoogleApiClient;
+
+    /** 接続先のウェアラブル端末のID */
+    private String mPeerId;
+
+    /** 描画プロファイルを表示するラベル */
+    private TextView mRenderProfileLabel;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_calendar_watch_face_config);
 
+        mPeerId = getIntent().getStringExtra(WatchFaceCompanion.EXTRA_PEER_ID);
         ComponentName name =
                 getIntent().getParcelableExtra(WatchFaceCompanion.EXTRA_WATCH_FACE_COMPONENT);
         TextView label = (TextView) findViewById(R.id.label);
         //label.setText(label.getText() + " (" + name.getClassName() + ")");
         label.setText(label.getText());
+
+        // ウォッチフェイスの描画プロファイルを表示するラベルを設定する
+        mRenderProfileLabel = (TextView) findViewById(R.id.render_profile);
+        mRenderProfileLabel.setText(getString(R.string.render_profile_label,
+                getString(R.string.render_profile_unknown)));
+
+        mGoogleApiClient = new GoogleApiClient.Builder(this)
+                .addConnectionCallbacks(this)
+                .addOnConnectionFailedListener(this)
+                .addApi(Wearable.API)
+                .build();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        mGoogleApiClient.connect();
+    }
+
+    @Override
+    protected void onStop() {
+        if ((mGoogleApiClient != null) && mGoogleApiClient.isConnected()) {
+            mGoogleApiClient.disconnect();
+        }
+        super.onStop();
+    }
+
+    @Override
+    public void onConnected(Bundle connectionHint) {
+        if (mPeerId == null) {
+            return;
+        }
+
+        // ウォッチフェイスが書き込んだ描画プロファイルを読み込む
+        Uri uri = new Uri.Builder()
+                .scheme(PutDataRequest.WEAR_URI_SCHEME)
+                .authority(mPeerId)
+                .path(WatchFaceStatus.PATH_STATUS)
+                .build();
+        Wearable.DataApi.getDataItem(mGoogleApiClient, uri).setResultCallback(this);
+    }
+
+    @Override
+    public void onConnectionSuspended(int cause) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "onConnectionSuspended: " + cause);
+        }
+    }
+
+    @Override
+    public void onConnectionFailed(ConnectionResult result) {
+        Log.w(TAG, "onConnectionFailed: " + result.getErrorCode());
+    }
+
+    @Override
+    public void onResult(DataApi.DataItemResult dataItemResult) {
+        DataItem dataItem = dataItemResult.getDataItem();
+        if (!dataItemResult.getStatus().isSuccess() || (dataItem == null)) {
+            return;
+        }
+        DataMap dataMap = DataMapItem.fromDataItem(dataItem).getDataMap();
+        int profileName;
+        switch (dataMap.getInt(WatchFaceStatus.KEY_RENDER_PROFILE, -1)) {
+            case WatchFaceStatus.PROFILE_FULL:
+                profileName = R.string.render_profile_full;
+                break;
+            case WatchFaceStatus.PROFILE_SAVER:
+                profileName = R.string.render_profile_saver;
+                break;
+            case WatchFaceStatus.PROFILE_ULTRA:
+                profileName = R.string.render_profile_ultra;
+                break;
+            default:
+                profileName = R.string.render_profile_unknown;
+                break;
+        }
+        mRenderProfileLabel.setText(getString(R.string.render_profile_label,
+                getString(profileName)));
     }
 }
@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+/**
+ * ウォッチフェイスの状態を書き込むデータアイテムの定数クラス
+ *
+ * ウェアラブル端末(書き込む側)とスマートフォンの設定画面(読み込む側)の両方から参照する。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class WatchFaceStatus {
+
+    /** データアイテムのパス */
+    public static final String PATH_STATUS = "/calendar_watch_face/status";
+
+    /** データアイテムのキー: 描画プロファイル */
+    public static final String KEY_RENDER_PROFILE = "render_profile";
+
+    /** 描画プロファイル: 通常 */
+    public static final int PROFILE_FULL = 0;
+
+    /** 描画プロファイル: 省電力 */
+    public static final int PROFILE_SAVER = 1;
+
+    /** 描画プロファイル: 超省電力 */
+    public static final int PROFILE_ULTRA = 2;
+
+    /**
+     * インスタンス化できないようにするためにデフォルトコンストラクターを抑制する
+     */
+    private WatchFaceStatus() {
+        throw new AssertionError();
+    }
+}
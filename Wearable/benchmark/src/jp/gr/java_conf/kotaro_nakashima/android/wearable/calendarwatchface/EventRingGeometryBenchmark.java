@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import java.util.Random;
+import java.util.TimeZone;
+
+import static jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface.CalendarUtilsTest.utc;
+
+/**
+ * {@link EventRingGeometry}の形状を計算し直す時間を、予定の数(10 - 2,000件)ごとに計測するベンチマーク。
+ * 計測結果は実行環境に依存するため、テスト(成功・失敗の判定)には含めず、
+ * {@link #main(String[])}を実行して結果を確認する。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class EventRingGeometryBenchmark {
+
+    /** タイムゾーン */
+    private static final TimeZone TOKYO = TimeZone.getTimeZone("Asia/Tokyo");
+
+    /** レーンの数の上限(ウォッチフェイスと同じ値) */
+    private static final int MAX_LANES = 3;
+
+    /** 個別に描画する予定の数の上限(ウォッチフェイスと同じ値) */
+    private static final int MAX_DETAILED = 24;
+
+    /** 計測する予定の数 */
+    private static final int[] SIZES = {10, 50, 200, 500, 1000, 2000};
+
+    /** 計算し直す回数 */
+    private static final int ITERATIONS = 200;
+
+    /**
+     * インスタンス化できないようにするためにデフォルトコンストラクターを抑制する
+     */
+    private EventRingGeometryBenchmark() {
+        throw new AssertionError();
+    }
+
+    /**
+     * 予定の数ごとに、形状を1回計算し直す時間と描画する円弧の数を出力する。
+     *
+     * @param args 使用しない
+     */
+    public static void main(final String[] args) {
+        final TimeZoneCache.Zone zone = new TimeZoneCache(TOKYO).getDeviceZone();
+        final ClockSnapshot now = new ClockSnapshot(zone);
+        now.set(utc(TOKYO, 2015, 6, 1, 9, 0));
+        final long hourStart = EventWindow.getHourStart(now.getEpochMillis(), zone);
+        final Random random = new Random(1);
+
+        // JITの最適化を待つために、1回目は計測しない
+        measure(EventRingGeometryTest.createTimeline(random, hourStart, SIZES[SIZES.length - 1]),
+                now);
+
+        for (int size : SIZES) {
+            final CalendarEventTimeline timeline =
+                    EventRingGeometryTest.createTimeline(random, hourStart, size);
+            final EventRingGeometry geometry = new EventRingGeometry(MAX_LANES, MAX_DETAILED);
+            geometry.update(timeline, 320, 320, now);
+            final long nanos = measure(timeline, now);
+            System.out.println(String.format(
+                    "EventRingGeometry: %d events %.3f ms (draw %d + busy %d)",
+                    size, nanos / 1e6 / ITERATIONS, geometry.getDrawCount(),
+                    geometry.getBusyCount()));
+        }
+    }
+
+    /**
+     * 形状を計算し直す時間を計測する。
+     *
+     * @param timeline 予定の索引
+     * @param now      現在時刻
+     * @return 計測した時間(ナノ秒)
+     */
+    private static long measure(final CalendarEventTimeline timeline, final ClockSnapshot now) {
+        final EventRingGeometry geometry = new EventRingGeometry(MAX_LANES, MAX_DETAILED);
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            geometry.invalidate();
+            geometry.update(timeline, 320, 320, now);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+/**
+ * {@link TrigTable}の速度を、Math.sin、Math.cosと比較するベンチマーク。
+ * 計測結果は実行環境に依存するため、テスト(成功・失敗の判定)には含めず、
+ * {@link #main(String[])}を実行して結果を確認する。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class TrigTableBenchmark {
+
+    /** 計算する回数 */
+    private static final int ITERATIONS = 2000000;
+
+    /**
+     * インスタンス化できないようにするためにデフォルトコンストラクターを抑制する
+     */
+    private TrigTableBenchmark() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Math.sin・cos、720分割の表、4096分割の表のそれぞれの計算時間を出力する。
+     *
+     * @param args 使用しない
+     */
+    public static void main(final String[] args) {
+        // JITの最適化を待つために、1回目は計測しない
+        measure();
+        final long[] nanos = measure();
+        System.out.println(String.format(
+                "TrigTable: Math %.1f ms, dial table %.1f ms (x%.1f), fine table %.1f ms (x%.1f)",
+                nanos[0] / 1e6, nanos[1] / 1e6, (double) nanos[0] / nanos[1],
+                nanos[2] / 1e6, (double) nanos[0] / nanos[2]));
+    }
+
+    /**
+     * Math.sin・cos、720分割の表、4096分割の表のそれぞれで計算した時間を計測する。
+     *
+     * @return 計測した時間(ナノ秒)
+     */
+    private static long[] measure() {
+        long[] nanos = new long[3];
+        double sink = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            final double rot = (i % TrigTable.DIAL_MINUTES) * Math.PI * 2 / TrigTable.DIAL_MINUTES;
+            sink += Math.sin(rot) + Math.cos(rot);
+        }
+        nanos[0] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += TrigTable.sinDialMinute(i) + TrigTable.cosDialMinute(i);
+        }
+        nanos[1] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            final float turns = i / (float) ITERATIONS;
+            sink += TrigTable.sinTurns(turns) + TrigTable.cosTurns(turns);
+        }
+        nanos[2] = System.nanoTime() - start;
+
+        // 計算が最適化で取り除かれないように結果を使う
+        if (Double.isNaN(sink)) {
+            throw new AssertionError();
+        }
+        return nanos;
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * AmbientModeのウォッチフェイスを描画するクラス。
+ *
+ * AmbientModeでは1分に1回しか描画しないため、背景と目盛りは端末の特性に合わせた種類ごとに
+ * ビットマップへ一度だけ描画しておき、毎分の描画では短針・長針だけを重ねる。
+ * <ul>
+ * <li>{@link #VARIANT_ANTI_ALIAS}: アンチエイリアスを使う(通常の端末)</li>
+ * <li>{@link #VARIANT_LOW_BIT}: アンチエイリアスを使わず、白黒だけで描画する(Low-bit AmbientMode)</li>
+ * <li>{@link #VARIANT_BURN_IN}: 焼き付きを防ぐため、点灯する画素を減らす(焼き付き防止)</li>
+ * </ul>
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class AmbientRenderer {
+
+    /** 描画の種類: アンチエイリアス */
+    public static final int VARIANT_ANTI_ALIAS = 0;
+
+    /** 描画の種類: Low-bit AmbientMode */
+    public static final int VARIANT_LOW_BIT = 1;
+
+    /** 描画の種類: 焼き付き防止 */
+    public static final int VARIANT_BURN_IN = 2;
+
+    /** 背景と目盛りのレイヤー(背景は不透明のため、透明度を持たない形式にする) */
+    private final CachedLayer mBackgroundLayer = new CachedLayer(Bitmap.Config.RGB_565);
+
+    /** 短針の描画スタイル */
+    private final Paint mHourPaint = new Paint();
+
+    /** 長針の描画スタイル */
+    private final Paint mMinutePaint = new Paint();
+
+    /** 目盛り(小)の描画スタイル */
+    private final Paint mTickPaintSmall = new Paint();
+
+    /** 目盛り(大)の描画スタイル */
+    private final Paint mTickPaintBig = new Paint();
+
+    /** 塗りつぶしの描画スタイル(Moto 360用の帯) */
+    private final Paint mFillPaint = new Paint();
+
+    /** 描画の種類 */
+    private int mVariant = VARIANT_ANTI_ALIAS;
+
+    /** ミュートモードかどうか */
+    private boolean mMute = false;
+
+    /** 背景を描画した時のMoto 360モード */
+    private boolean mMoto360 = false;
+
+    /** 設定済みの端末の特性(Low-bit AmbientModeは1、焼き付き防止は2のビット、未設定の場合は-1) */
+    private int mDeviceProperties = -1;
+
+    /**
+     * コンストラクター
+     */
+    public AmbientRenderer() {
+        mHourPaint.setStrokeCap(Paint.Cap.ROUND);
+        mMinutePaint.setStrokeCap(Paint.Cap.ROUND);
+        mFillPaint.setColor(Color.BLACK);
+        setDeviceProperties(false, false);
+    }
+
+    /**
+     * 端末の特性に合わせて、描画の種類を設定する。
+     * 端末の特性が設定済みの値と同じ場合は、何もしない。(描画済みの背景をそのまま使う)
+     *
+     * @param lowBitAmbient    Low-bit AmbientModeの端末の場合はtrue
+     * @param burnInProtection 焼き付き防止が必要な端末の場合はtrue
+     */
+    public void setDeviceProperties(final boolean lowBitAmbient, final boolean burnInProtection) {
+        final int properties = (lowBitAmbient ? 1 : 0) | (burnInProtection ? 2 : 0);
+        if (properties == mDeviceProperties) {
+            return;
+        }
+        mDeviceProperties = properties;
+        final int variant = burnInProtection ? VARIANT_BURN_IN
+                : (lowBitAmbient ? VARIANT_LOW_BIT : VARIANT_ANTI_ALIAS);
+        mVariant = variant;
+
+        // 描画スタイルを設定する
+        final boolean antiAlias = !lowBitAmbient;
+        final int handsColor = (variant == VARIANT_ANTI_ALIAS) ? Color.GRAY : Color.WHITE;
+        final boolean thin = (variant == VARIANT_BURN_IN);
+        mHourPaint.setAntiAlias(antiAlias);
+        mHourPaint.setColor(handsColor);
+        mHourPaint.setStrokeWidth(thin ? 4.f : 12.f);
+        mMinutePaint.setAntiAlias(antiAlias);
+        mMinutePaint.setColor(handsColor);
+        mMinutePaint.setStrokeWidth(thin ? 2.f : 6.f);
+        mTickPaintSmall.setAntiAlias(antiAlias);
+        mTickPaintSmall.setColor(handsColor);
+        mTickPaintSmall.setStrokeWidth(2.f);
+        mTickPaintBig.setAntiAlias(antiAlias);
+        mTickPaintBig.setColor(handsColor);
+        mTickPaintBig.setStrokeWidth(thin ? 2.f : 8.f);
+        applyMute();
+
+        mBackgroundLayer.invalidate();
+    }
+
+    /**
+     * ミュートモードかどうかを設定する。(ミュートモードの場合は、針を薄く描画する)
+     *
+     * @param mute ミュートモードの場合はtrue
+     */
+    public void setMute(final boolean mute) {
+        mMute = mute;
+        applyMute();
+    }
+
+    /**
+     * AmbientModeのウォッチフェイスを描画する。
+     *
+     * @param canvas  描画に利用するキャンバス
+     * @param width   ウォッチフェイスの幅
+     * @param height  ウォッチフェイスの高さ
+     * @param hour    現在時刻(時)
+     * @param minute  現在時刻(分)
+     * @param moto360 Moto 360モードの場合はtrue
+     */
+    public void draw(final Canvas canvas, final int width, final int height, final int hour,
+            final int minute, final boolean moto360) {
+        // 背景と目盛りは、描画済みのビットマップを転写する
+        if (!mBackgroundLayer.isValid(width, height) || (mMoto360 != moto360)) {
+            renderBackground(mBackgroundLayer.beginDraw(width, height), width, height, moto360);
+            mBackgroundLayer.endDraw();
+            mMoto360 = moto360;
+        }
+        mBackgroundLayer.draw(canvas);
+
+        // 短針・長針を描画する
+        final float centerX = width / 2f;
+        final float centerY = height / 2f;
+        final int hrRot = (hour * 60) + minute;
+        final float hrLength = centerX - 58;
+        canvas.drawLine(centerX, centerY,
+                centerX + TrigTable.sinDialMinute(hrRot) * hrLength,
+                centerY + -TrigTable.cosDialMinute(hrRot) * hrLength, mHourPaint);
+        final float minLength = centerX - 5;
+        canvas.drawLine(centerX, centerY,
+                centerX + TrigTable.sinTick(minute) * minLength,
+                centerY + -TrigTable.cosTick(minute) * minLength, mMinutePaint);
+    }
+
+    /**
+     * ビットマップを破棄する。
+     */
+    public void release() {
+        mBackgroundLayer.release();
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 針の透明度を設定する。
+     */
+    private void applyMute() {
+        // Low-bit AmbientModeでは中間の透明度を表示できないため、ミュートモードでも変えない
+        final int alpha = (mMute && (mVariant == VARIANT_ANTI_ALIAS)) ? 100 : 255;
+        mHourPaint.setAlpha(alpha);
+        mMinutePaint.setAlpha(alpha);
+    }
+
+    /**
+     * 背景と目盛りをビットマップに描画する。
+     *
+     * @param canvas  ビットマップのキャンバス
+     * @param width   ウォッチフェイスの幅
+     * @param height  ウォッチフェイスの高さ
+     * @param moto360 Moto 360モードの場合はtrue
+     */
+    private void renderBackground(final Canvas canvas, final int width, final int height,
+            final boolean moto360) {
+        final float centerX = width / 2f;
+        final float centerY = height / 2f;
+
+        // 背景を描画する
+        canvas.drawColor(Color.BLACK);
+
+        // 目盛りを描画する(焼き付き防止の場合は、時の目盛りだけを細い線で描画する)
+        for (int tickIndex = 0; tickIndex < 60; tickIndex++) {
+            float innerTickRadius = centerX - 20;
+            float outerTickRadius = centerX - 5;
+            Paint paint = mTickPaintSmall;
+            if ((tickIndex % 5) == 0) {
+                innerTickRadius = centerX - 35;
+                outerTickRadius = centerX - 5;
+                paint = mTickPaintBig;
+            } else if (mVariant == VARIANT_BURN_IN) {
+                continue;
+            }
+
+            final float sin = TrigTable.sinTick(tickIndex);
+            final float cos = -TrigTable.cosTick(tickIndex);
+            canvas.drawLine(
+                    centerX + sin * innerTickRadius,
+                    centerY + cos * innerTickRadius,
+                    centerX + sin * outerTickRadius,
+                    centerY + cos * outerTickRadius,
+                    paint);
+        }
+
+        // Moto 360用の下側にある環境光センサーの黒い帯をエミュレートする
+        if (moto360) {
+            canvas.drawRect(0, 290, 320, 320, mFillPaint);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+/**
+ * 描画結果をビットマップに保持しておくレイヤー。
+ *
+ * 内容が変わった時だけ{@link #beginDraw(int, int)}と{@link #endDraw()}の間でビットマップに描画し、
+ * それ以外の時は{@link #draw(Canvas)}でビットマップを転写するだけにする。
+ * (描画スレッドからのみ利用する)
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class CachedLayer {
+
+    /** ビットマップの形式 */
+    private final Bitmap.Config mConfig;
+
+    /** 描画結果のビットマップ */
+    private Bitmap mBitmap;
+
+    /** ビットマップに描画するためのキャンバス */
+    private final Canvas mCanvas = new Canvas();
+
+    /** ビットマップの内容が有効かどうか */
+    private boolean mValid = false;
+
+    /**
+     * コンストラクター
+     */
+    public CachedLayer() {
+        this(Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * コンストラクター
+     *
+     * @param config ビットマップの形式
+     */
+    public CachedLayer(final Bitmap.Config config) {
+        mConfig = config;
+    }
+
+    /**
+     * ビットマップの内容が有効かどうかを判定する。
+     *
+     * @param width  ウォッチフェイスの幅
+     * @param height ウォッチフェイスの高さ
+     * @return 有効な場合はtrue(描画し直す必要がない)
+     */
+    public boolean isValid(final int width, final int height) {
+        return mValid && (mBitmap != null) && (mBitmap.getWidth() == width)
+                && (mBitmap.getHeight() == height);
+    }
+
+    /**
+     * ビットマップの内容を無効にする。次に描画する時に描画し直す。
+     */
+    public void invalidate() {
+        mValid = false;
+    }
+
+    /**
+     * ビットマップへの描画を開始する。ビットマップは透明で塗りつぶしてから返す。
+     *
+     * @param width  ウォッチフェイスの幅
+     * @param height ウォッチフェイスの高さ
+     * @return ビットマップに描画するためのキャンバス
+     */
+    public Canvas beginDraw(final int width, final int height) {
+        if ((mBitmap == null) || (mBitmap.getWidth() != width)
+                || (mBitmap.getHeight() != height)) {
+            release();
+            mBitmap = Bitmap.createBitmap(width, height, mConfig);
+            mCanvas.setBitmap(mBitmap);
+        }
+        mBitmap.eraseColor(Color.TRANSPARENT);
+        mValid = false;
+        return mCanvas;
+    }
+
+    /**
+     * ビットマップへの描画を終了する。
+     */
+    public void endDraw() {
+        mValid = true;
+    }
+
+    /**
+     * ビットマップを転写する。
+     *
+     * @param canvas 描画に利用するキャンバス
+     */
+    public void draw(final Canvas canvas) {
+        if (mBitmap != null) {
+            canvas.drawBitmap(mBitmap, 0, 0, null);
+        }
+    }
+
+    /**
+     * ビットマップを破棄する。
+     */
+    public void release() {
+        if (mBitmap != null) {
+            mCanvas.setBitmap(null);
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+        mValid = false;
+    }
+}
@@ -13,6 +13,58 @@ import java.lang.String;
  */
 public final class CalendarEvent {
 
+    /**
+     * コンストラクター
+     */
+    public CalendarEvent() {
+    }
+
+    /**
+     * 指定した予定の複製を作成するコンストラクター
+     *
+     * @param other 複製する予定
+     */
+    public CalendarEvent(final CalendarEvent other) {
+        eventId = other.eventId;
+        title = other.title;
+        dtStart = other.dtStart;
+        dtEnd = other.dtEnd;
+        allDay = other.allDay;
+        timeZone = other.timeZone;
+        eventLocation = other.eventLocation;
+        calendarId = other.calendarId;
+        calendarColor = other.calendarColor;
+        description = other.description;
+        rrule = other.rrule;
+        rdate = other.rdate;
+        duration = other.duration;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /** 予定のID */
+    private long eventId;
+
+    /**
+     * 予定のIDを取得する。
+     *
+     * @return 予定のID
+     */
+    public long getEventId() {
+        return eventId;
+    }
+
+    /**
+     * 予定のIDを設定する。
+     *
+     * @param eventId 予定のID
+     */
+    public void setEventId(final long eventId) {
+        this.eventId = eventId;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
     /** 予定のタイトル */
     private String title;
 
@@ -286,4 +338,6 @@ public final class CalendarEvent {
     public void setDuration(String duration) {
         this.duration = duration;
     }
+
+    //----------------------------------------------------------------------------------------------
 }
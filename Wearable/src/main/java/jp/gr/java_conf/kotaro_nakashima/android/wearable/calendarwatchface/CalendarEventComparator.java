@@ -6,7 +6,9 @@ package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
 import java.util.Comparator;
 
 /**
- * CalendarEventクラスのソート用クラス
+ * CalendarEventクラスのソート用クラス(開始時刻の昇順)
+ *
+ * 開始時刻が同じ場合は、終了時刻、タイトル、予定のIDの順に比較する。
  *
  * @author Kotaro Nakashima
  * @since 1.0.0.0
@@ -15,12 +17,27 @@ public class CalendarEventComparator implements Comparator<CalendarEvent> {
 
     @Override
     public int compare(CalendarEvent obj1, CalendarEvent obj2) {
-        Long a = obj1.getDtStart();
-        Long b = obj2.getDtStart();
-        if ((a == null) || (b == null)) {
-            return 0;
+        // 開始時刻、終了時刻、タイトル、予定のIDの順に比較し、同じ開始時刻でも順序を一意にする
+        int result = compare(obj1.getDtStart(), obj2.getDtStart());
+        if (result == 0) {
+            result = compare(obj1.getDtEnd(), obj2.getDtEnd());
+        }
+        if (result == 0) {
+            final String a = (obj1.getTitle() != null) ? obj1.getTitle() : "";
+            final String b = (obj2.getTitle() != null) ? obj2.getTitle() : "";
+            result = a.compareTo(b);
+        }
+        if (result == 0) {
+            result = compare(obj1.getEventId(), obj2.getEventId());
         }
-        return -a.compareTo(b);
+        return result;
+    }
+
+    /**
+     * long型の値を比較する。
+     */
+    private static int compare(final long a, final long b) {
+        return (a < b) ? -1 : ((a == b) ? 0 : 1);
     }
 }
 
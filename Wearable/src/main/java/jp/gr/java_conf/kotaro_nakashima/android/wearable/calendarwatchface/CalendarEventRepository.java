@@ -0,0 +1,397 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.support.wearable.provider.WearableCalendarContract;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * カレンダーの予定をバックグラウンドで読み込み、保持するクラス。
+ *
+ * カレンダープロバイダーへの問い合わせは描画のたびには行わず、
+ * 予定の変更(ContentObserver)、表示範囲の切り替わり(毎時)のいずれかが起きたときだけ、
+ * バックグラウンドのスレッドで行う。
+ * 表示範囲の切り替わりでは、範囲外になった予定を捨て、新たに範囲に入った期間だけを問い合わせる。
+ * 全件を読み込み直すのは、カレンダープロバイダーの変更が通知されたときなどに限る。
+ * タイムゾーンの変更・夏時間の切り替わりでは問い合わせず、読み込み済みの予定を
+ * 新しいタイムゾーンの表示範囲に合わせ直す。({@link #rebase()})
+ * 描画処理は{@link #getEvents()}で最後に読み込んだ結果({@link CalendarEventStore})を
+ * 参照するだけにする。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class CalendarEventRepository {
+
+    private static final String TAG = "CalendarEventRepository";
+
+    /** 予定を取得する範囲(現在時刻からの時間) */
+    private static final long WINDOW_MILLIS = EventWindow.SPAN_MILLIS;
+
+    /**
+     * 予定が再読み込みされたことを通知するリスナー
+     */
+    public interface OnEventsChangedListener {
+
+        /**
+         * 予定が再読み込みされたときに、メインスレッドで呼ばれる。
+         */
+        void onEventsChanged();
+    }
+
+    /** コンテンツリゾルバー */
+    private final ContentResolver mContentResolver;
+
+    /** 予定の再読み込みを通知するリスナー */
+    private final OnEventsChangedListener mListener;
+
+    /** メインスレッドのハンドラー */
+    private final Handler mMainHandler;
+
+    /** 予定を読み込むスレッド */
+    private final HandlerThread mLoaderThread;
+
+    /** 予定を読み込むスレッドのハンドラー */
+    private final Handler mLoaderHandler;
+
+    /** 最後に読み込んだカレンダーの予定 */
+    private volatile CalendarEventStore mEvents = CalendarEventStore.EMPTY;
+
+    /** 次に表示範囲を切り替える時刻(この時刻を過ぎたら再読み込みする) */
+    private volatile long mNextRollOverMillis = Long.MIN_VALUE;
+
+    /** 再読み込みを要求済みかどうか */
+    private volatile boolean mLoadPending = false;
+
+    /** 全件の再読み込みが必要かどうか(falseの場合は表示範囲の差分だけを読み込む) */
+    private volatile boolean mFullReloadRequired = true;
+
+    /** 読み込み済みの予定(表示範囲の調整前)。読み込みスレッドからのみ参照する。 */
+    private final List<CalendarEvent> mRawEvents = new ArrayList<>();
+
+    /** 端末のタイムゾーン。読み込みスレッドからのみ参照する。 */
+    private final TimeZoneCache mTimeZoneCache = new TimeZoneCache(TimeZone.getDefault());
+
+    /** 読み込み済みの期間の終了時刻。読み込みスレッドからのみ参照する。 */
+    private long mLoadedWindowEnd = Long.MIN_VALUE;
+
+    /** ContentObserverを登録しているかどうか */
+    private boolean mRegisteredObserver = false;
+
+    /** 予定の監視を開始しているかどうか(ウォッチフェイスの表示中だけtrue) */
+    private volatile boolean mStarted = false;
+
+    /**
+     * カレンダープロバイダーの変更を監視する
+     */
+    private final ContentObserver mObserver;
+
+    /**
+     * 予定を読み込む処理
+     */
+    private final Runnable mLoadRunnable = new Runnable() {
+        @Override
+        public void run() {
+            load();
+        }
+    };
+
+    /**
+     * 読み込み済みの予定を表示範囲に合わせ直す処理
+     */
+    private final Runnable mRebaseRunnable = new Runnable() {
+        @Override
+        public void run() {
+            rebaseEvents();
+        }
+    };
+
+    /**
+     * 読み込みが終わったことをメインスレッドで通知する処理
+     */
+    private final Runnable mNotifyRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mListener.onEventsChanged();
+        }
+    };
+
+    /**
+     * コンストラクター
+     *
+     * @param contentResolver コンテンツリゾルバー
+     * @param listener        予定の再読み込みを通知するリスナー
+     */
+    public CalendarEventRepository(final ContentResolver contentResolver,
+            final OnEventsChangedListener listener) {
+        mContentResolver = contentResolver;
+        mListener = listener;
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mLoaderThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        mLoaderThread.start();
+        mLoaderHandler = new Handler(mLoaderThread.getLooper());
+        mObserver = new ContentObserver(mLoaderHandler) {
+            @Override
+            public void onChange(boolean selfChange) {
+                if (Log.isLoggable(TAG, Log.DEBUG)) {
+                    Log.d(TAG, "onChange: calendar instances changed");
+                }
+                // 非表示の間は読み込まず、次に表示されたときに読み込む
+                mFullReloadRequired = true;
+                if (mStarted) {
+                    postLoad();
+                }
+            }
+        };
+    }
+
+    /**
+     * 予定の監視を開始する。
+     * 停止している間に予定が変わった場合(変更が通知された場合)、または表示範囲が
+     * 切り替わる時刻を過ぎた場合だけ、予定を読み込む。
+     */
+    public void start() {
+        if (!mRegisteredObserver) {
+            mRegisteredObserver = true;
+            mContentResolver.registerContentObserver(
+                    WearableCalendarContract.Instances.CONTENT_URI, true, mObserver);
+        }
+        mStarted = true;
+        if (mFullReloadRequired) {
+            postLoad();
+        } else {
+            refreshIfWindowExpired(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 予定の読み込みを停止する。
+     * 変更の監視は続け、変更が通知された場合は次の{@link #start()}で読み込む。
+     */
+    public void stop() {
+        mStarted = false;
+        mLoaderHandler.removeCallbacks(mLoadRunnable);
+        mLoaderHandler.removeCallbacks(mRebaseRunnable);
+        mLoadPending = false;
+    }
+
+    /**
+     * 予定の監視を終了し、読み込みスレッドを終了する。以降、このインスタンスは使用できない。
+     */
+    public void release() {
+        stop();
+        if (mRegisteredObserver) {
+            mRegisteredObserver = false;
+            mContentResolver.unregisterContentObserver(mObserver);
+        }
+        mMainHandler.removeCallbacks(mNotifyRunnable);
+        mLoaderThread.quit();
+    }
+
+    /**
+     * 端末のタイムゾーンの変更、または夏時間の切り替わりを通知する。
+     * カレンダープロバイダーには問い合わせず、読み込み済みの予定を新しい表示範囲
+     * (現在時刻(時)から12時間)に合わせ直す。
+     * 読み込み済みの期間が新しい表示範囲に足りない場合だけ、差分を読み込む。
+     */
+    public void rebase() {
+        mLoaderHandler.removeCallbacks(mRebaseRunnable);
+        mLoaderHandler.post(mRebaseRunnable);
+    }
+
+    /**
+     * 表示範囲が切り替わる時刻を過ぎていれば、予定の差分の読み込みを要求する。
+     * 描画のたびに呼ばれるため、時刻の比較のみを行う。
+     *
+     * @param currentTimeMillis 現在時刻
+     */
+    public void refreshIfWindowExpired(final long currentTimeMillis) {
+        if (currentTimeMillis >= mNextRollOverMillis) {
+            postLoad();
+        }
+    }
+
+    /**
+     * 読み込みスレッドに読み込みを依頼する。
+     * 依頼済みのフラグは、読み込みが終わって次の切り替え時刻を設定した後に下ろす。
+     * (それまでに描画された場合に、同じ読み込みを重ねて依頼しないため)
+     */
+    private void postLoad() {
+        if (!mLoadPending) {
+            mLoadPending = true;
+            mLoaderHandler.post(mLoadRunnable);
+        }
+    }
+
+    /**
+     * 最後に読み込んだカレンダーの予定を取得する。
+     *
+     * @return カレンダーの予定(変更不可)
+     */
+    public CalendarEventStore getEvents() {
+        return mEvents;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * カレンダープロバイダーから予定を読み込む。(読み込みスレッドで実行する)
+     */
+    private void load() {
+        mTimeZoneCache.setDeviceTimeZone(TimeZone.getDefault());
+
+        final long startTime = System.currentTimeMillis();
+        final long endTime = startTime + WINDOW_MILLIS;
+        final long currentHour = EventWindow.getHourStart(startTime,
+                mTimeZoneCache.getDeviceZone());
+        final boolean loaded;
+        if (mFullReloadRequired || (startTime >= mLoadedWindowEnd)) {
+            loaded = reloadAll(startTime, endTime, currentHour);
+        } else {
+            loaded = slideWindow(startTime, endTime, currentHour);
+        }
+        if (!loaded) {
+            // 読み込みに失敗した場合は、1分後に全件の読み込みを再試行する
+            Log.w(TAG, "load: calendar provider returned no cursor");
+            mFullReloadRequired = true;
+            mNextRollOverMillis = startTime + TimeUnit.MINUTES.toMillis(1);
+            mLoadPending = false;
+            return;
+        }
+
+        publish(currentHour);
+        mLoadPending = false;
+
+        // 読み込み中に予定の変更が通知された場合は、もう一度読み込む
+        if (mFullReloadRequired && mStarted) {
+            postLoad();
+        }
+    }
+
+    /**
+     * 読み込み済みの予定を、新しいタイムゾーンの表示範囲に合わせ直す。(読み込みスレッドで実行する)
+     *
+     * 予定の開始・終了時刻(UTC)はタイムゾーンによって変わらないため、読み込み済みの予定を
+     * そのまま使う。読み込み済みの期間が新しい表示範囲に足りない場合は、読み込み済みの予定を
+     * 公開してから、足りない期間を読み込む。
+     */
+    private void rebaseEvents() {
+        mTimeZoneCache.setDeviceTimeZone(TimeZone.getDefault());
+        if (mLoadPending || mFullReloadRequired) {
+            postLoad();
+            return;
+        }
+
+        final long startTime = System.currentTimeMillis();
+        final long currentHour = EventWindow.getHourStart(startTime,
+                mTimeZoneCache.getDeviceZone());
+        final long endTime = currentHour + WINDOW_MILLIS;
+        publish(currentHour);
+        if (endTime > mLoadedWindowEnd) {
+            postLoad();
+        }
+    }
+
+    /**
+     * 読み込み済みの予定を表示範囲に合わせて公開し、次の表示範囲の切り替え時刻(次の正時)を設定する。
+     *
+     * @param currentHour 現在時刻(時)
+     */
+    private void publish(final long currentHour) {
+        List<CalendarEvent> events = new ArrayList<>(mRawEvents.size());
+        for (CalendarEvent rawEvent : mRawEvents) {
+            events.add(new CalendarEvent(rawEvent));
+        }
+
+        // すべての予定を1回の走査で表示範囲に収める(範囲外の予定は除く。開始時刻順は保たれる)
+        EventWindow.clamp(events, currentHour);
+        mEvents = CalendarEventStore.from(events);
+        mNextRollOverMillis = currentHour + TimeUnit.HOURS.toMillis(1);
+        mMainHandler.post(mNotifyRunnable);
+    }
+
+    /**
+     * 表示範囲の予定をすべて読み込み直す。
+     *
+     * @param startTime   表示範囲の開始時刻
+     * @param endTime     表示範囲の終了時刻
+     * @param currentHour 現在時刻(時)
+     * @return 読み込めた場合はtrue
+     */
+    private boolean reloadAll(final long startTime, final long endTime,
+            final long currentHour) {
+        mFullReloadRequired = false;
+        Cursor cursor = CalendarInstancesQuery.query(mContentResolver, startTime, endTime);
+        if (cursor == null) {
+            return false;
+        }
+
+        mRawEvents.clear();
+        readCalendarEvents(cursor);
+        mLoadedWindowEnd = endTime;
+        return true;
+    }
+
+    /**
+     * 表示範囲を進める。
+     * 表示範囲外になった予定を捨て、新たに表示範囲に入った期間の予定だけを読み込む。
+     *
+     * @param startTime   表示範囲の開始時刻
+     * @param endTime     表示範囲の終了時刻
+     * @param currentHour 現在時刻(時)
+     * @return 読み込めた場合はtrue
+     */
+    private boolean slideWindow(final long startTime, final long endTime,
+            final long currentHour) {
+        // 新たに表示範囲に入った期間の予定を読み込む
+        // (読み込み済みの期間の終了時刻と重なる予定は、すでに読み込んでいるため除外する)
+        Cursor cursor = CalendarInstancesQuery.queryAfter(mContentResolver, mLoadedWindowEnd,
+                endTime);
+        if (cursor == null) {
+            return false;
+        }
+
+        // 表示範囲外になった予定を捨てる
+        for (Iterator<CalendarEvent> it = mRawEvents.iterator(); it.hasNext(); ) {
+            if (it.next().getDtEnd() <= startTime) {
+                it.remove();
+            }
+        }
+
+        // 追加する予定はすべて読み込み済みの期間の後に始まるため、末尾に追加しても開始時刻順は保たれる
+        readCalendarEvents(cursor);
+        mLoadedWindowEnd = endTime;
+        return true;
+    }
+
+    /**
+     * カーソルから予定を読み込み、読み込み済みの予定の末尾に追加する。
+     *
+     * 繰り返しの予定は、カレンダープロバイダー(Instances)が展開した回(行)をそのまま使う。
+     *
+     * @param cursor カーソル
+     */
+    private void readCalendarEvents(final Cursor cursor) {
+        try {
+            while (cursor.moveToNext()) {
+                mRawEvents.add(CalendarInstancesQuery.getCalendarEvent(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+}
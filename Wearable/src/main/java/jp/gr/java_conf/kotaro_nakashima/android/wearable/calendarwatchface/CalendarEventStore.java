@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 描画用のカレンダーの予定を保持するクラス。
+ *
+ * 描画処理が参照する開始時刻、終了時刻、色、フラグ、タイトルを、予定ごとのオブジェクトではなく
+ * 要素ごとの配列で保持する。(インスタンス作成後は変更しない)
+ * 予定の詳細が必要な場合だけ、{@link #getEvent(int)}で元の{@link CalendarEvent}を参照する。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class CalendarEventStore {
+
+    /** フラグ: 終日 */
+    private static final int FLAG_ALL_DAY = 1;
+
+    /** 予定のない空のインスタンス */
+    public static final CalendarEventStore EMPTY = new CalendarEventStore(new CalendarEvent[0]);
+
+    /** 予定の数 */
+    private final int mSize;
+
+    /** 開始時刻 */
+    private final long[] mStarts;
+
+    /** 終了時刻 */
+    private final long[] mEnds;
+
+    /** カレンダーの色 */
+    private final int[] mColors;
+
+    /** フラグ */
+    private final int[] mFlags;
+
+    /** タイトルの番号({@link #mTitles}の添字) */
+    private final int[] mTitleIndices;
+
+    /** タイトル(重複は除く) */
+    private final String[] mTitles;
+
+    /** 予定の詳細 */
+    private final CalendarEvent[] mEvents;
+
+    /**
+     * コンストラクター
+     *
+     * @param events カレンダーの予定
+     */
+    private CalendarEventStore(final CalendarEvent[] events) {
+        mSize = events.length;
+        mStarts = new long[mSize];
+        mEnds = new long[mSize];
+        mColors = new int[mSize];
+        mFlags = new int[mSize];
+        mTitleIndices = new int[mSize];
+        mEvents = events;
+
+        Map<String, Integer> titleIndices = new HashMap<>();
+        String[] titles = new String[mSize];
+        int titleCount = 0;
+        for (int i = 0; i < mSize; i++) {
+            final CalendarEvent event = events[i];
+            mStarts[i] = event.getDtStart();
+            mEnds[i] = event.getDtEnd();
+            mColors[i] = event.getCalendarColor();
+            mFlags[i] = event.isAllDay() ? FLAG_ALL_DAY : 0;
+
+            final String title = (event.getTitle() != null) ? event.getTitle() : "";
+            Integer titleIndex = titleIndices.get(title);
+            if (titleIndex == null) {
+                titleIndex = titleCount;
+                titles[titleCount++] = title;
+                titleIndices.put(title, titleIndex);
+            }
+            mTitleIndices[i] = titleIndex;
+        }
+        mTitles = new String[titleCount];
+        System.arraycopy(titles, 0, mTitles, 0, titleCount);
+    }
+
+    /**
+     * カレンダーの予定から描画用のインスタンスを作成する。
+     *
+     * @param events カレンダーの予定
+     * @return 描画用のカレンダーの予定
+     */
+    public static CalendarEventStore from(final List<CalendarEvent> events) {
+        return events.isEmpty() ? EMPTY
+                : new CalendarEventStore(events.toArray(new CalendarEvent[events.size()]));
+    }
+
+    /**
+     * 予定の数を取得する。
+     *
+     * @return 予定の数
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * 開始時刻を取得する。
+     *
+     * @param index 予定の番号
+     * @return 開始時刻
+     */
+    public long getStart(final int index) {
+        return mStarts[index];
+    }
+
+    /**
+     * 終了時刻を取得する。
+     *
+     * @param index 予定の番号
+     * @return 終了時刻
+     */
+    public long getEnd(final int index) {
+        return mEnds[index];
+    }
+
+    /**
+     * カレンダーの色を取得する。
+     *
+     * @param index 予定の番号
+     * @return カレンダーの色
+     */
+    public int getColor(final int index) {
+        return mColors[index];
+    }
+
+    /**
+     * 終日の予定かどうかを取得する。
+     *
+     * @param index 予定の番号
+     * @return 終日の予定の場合はtrue
+     */
+    public boolean isAllDay(final int index) {
+        return (mFlags[index] & FLAG_ALL_DAY) != 0;
+    }
+
+    /**
+     * タイトルの番号を取得する。同じタイトルの予定は同じ番号になる。
+     *
+     * @param index 予定の番号
+     * @return タイトルの番号
+     */
+    public int getTitleIndex(final int index) {
+        return mTitleIndices[index];
+    }
+
+    /**
+     * タイトルを取得する。
+     *
+     * @param index 予定の番号
+     * @return タイトル
+     */
+    public String getTitle(final int index) {
+        return mTitles[mTitleIndices[index]];
+    }
+
+    /**
+     * 予定の詳細を取得する。
+     *
+     * @param index 予定の番号
+     * @return カレンダーの予定
+     */
+    public CalendarEvent getEvent(final int index) {
+        return mEvents[index];
+    }
+}
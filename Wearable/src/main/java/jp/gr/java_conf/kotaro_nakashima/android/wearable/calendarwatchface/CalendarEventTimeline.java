@@ -0,0 +1,305 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+/**
+ * カレンダーの予定を時刻で検索するための索引クラス。
+ *
+ * 終日以外の予定を開始時刻の昇順(同じ場合は終了時刻、タイトル、予定のIDの順)に並べ、
+ * 開始時刻の配列と終了時刻の累積最大値の配列を二分探索することで、
+ * 「現在の予定」「次の予定」をO(log n)で検索する。
+ * 「期間に重なる予定」は、並べ替えた配列を暗黙の二分探索木とみなし、部分木ごとの終了時刻の
+ * 最大値で重ならない部分木を読み飛ばすことで、長い予定が短い予定を多数またいでいても
+ * 見つかった予定の数k に対して O(log n + k log n) 以下で検索する。
+ * (インスタンス作成後は変更しない)
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class CalendarEventTimeline {
+
+    /** 索引の元になった予定 */
+    private final CalendarEventStore mStore;
+
+    /** 予定の番号(並べ替え後の順) */
+    private final int[] mOrder;
+
+    /** 開始時刻(並べ替え後の順) */
+    private final long[] mStarts;
+
+    /** 終了時刻の累積最大値(並べ替え後の順で、先頭からその位置までの最大値) */
+    private final long[] mMaxEnds;
+
+    /**
+     * 部分木の終了時刻の最大値(並べ替え後の順)
+     * 範囲[from, to)の中央の位置を根とし、左右の範囲を部分木とする暗黙の二分探索木で、
+     * 根の位置にその部分木の終了時刻の最大値を格納する。
+     */
+    private final long[] mSubtreeMaxEnds;
+
+    /**
+     * コンストラクター
+     *
+     * @param store カレンダーの予定
+     */
+    public CalendarEventTimeline(final CalendarEventStore store) {
+        mStore = store;
+
+        // 終日以外の予定を取り出す
+        int size = 0;
+        int[] order = new int[store.size()];
+        for (int i = 0; i < store.size(); i++) {
+            if (!store.isAllDay(i)) {
+                order[size++] = i;
+            }
+        }
+        mOrder = new int[size];
+        System.arraycopy(order, 0, mOrder, 0, size);
+
+        // 並べ替えて、開始時刻と終了時刻の累積最大値を設定する
+        sort(mOrder, new int[size], 0, size);
+        mStarts = new long[size];
+        mMaxEnds = new long[size];
+        long maxEnd = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            mStarts[i] = store.getStart(mOrder[i]);
+            maxEnd = Math.max(maxEnd, store.getEnd(mOrder[i]));
+            mMaxEnds[i] = maxEnd;
+        }
+        mSubtreeMaxEnds = new long[size];
+        buildSubtreeMaxEnds(0, size);
+    }
+
+    /**
+     * 索引の元になった予定を取得する。
+     *
+     * @return カレンダーの予定
+     */
+    public CalendarEventStore getStore() {
+        return mStore;
+    }
+
+    /**
+     * 索引に含まれる予定(終日以外)の数を取得する。
+     *
+     * @return 予定の数
+     */
+    public int size() {
+        return mOrder.length;
+    }
+
+    /**
+     * 並べ替え後の位置の予定の番号を取得する。
+     *
+     * @param position 並べ替え後の位置
+     * @return 予定の番号({@link CalendarEventStore}の添字)
+     */
+    public int get(final int position) {
+        return mOrder[position];
+    }
+
+    /**
+     * 指定した時刻に行われている予定を検索する。
+     * 複数ある場合は、最も早く始まった予定を返す。
+     *
+     * @param time 時刻
+     * @return 予定の番号(ない場合は-1)
+     */
+    public int findCurrent(final long time) {
+        final int position = firstEndingAfter(time);
+        if ((position < mOrder.length) && (mStarts[position] <= time)) {
+            return mOrder[position];
+        }
+        return -1;
+    }
+
+    /**
+     * 指定した時刻より後に始まる最初の予定を検索する。
+     *
+     * @param time 時刻
+     * @return 予定の番号(ない場合は-1)
+     */
+    public int findNext(final long time) {
+        final int position = firstStartingAfter(time);
+        return (position < mOrder.length) ? mOrder[position] : -1;
+    }
+
+    /**
+     * 指定した時刻に行われている予定、なければ次の予定を検索する。
+     *
+     * @param time 時刻
+     * @return 予定の番号(ない場合は-1)
+     */
+    public int findCurrentOrNext(final long time) {
+        final int current = findCurrent(time);
+        return (current >= 0) ? current : findNext(time);
+    }
+
+    /**
+     * 指定した期間に重なる予定を検索する。
+     *
+     * @param from   期間の開始時刻
+     * @param to     期間の終了時刻
+     * @param result 予定の番号を格納する配列(開始時刻の昇順に格納する)
+     * @return 見つかった予定の数(resultに格納しきれない分も含む)
+     */
+    public int findOverlapping(final long from, final long to, final int[] result) {
+        return findOverlapping(0, mOrder.length, from, to, result, 0);
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 部分木の終了時刻の最大値を設定する。
+     *
+     * @param from 部分木の範囲の開始位置
+     * @param to   部分木の範囲の終了位置(この位置は含まない)
+     * @return 部分木の終了時刻の最大値(空の場合はLong.MIN_VALUE)
+     */
+    private long buildSubtreeMaxEnds(final int from, final int to) {
+        if (from >= to) {
+            return Long.MIN_VALUE;
+        }
+        final int mid = (from + to) >>> 1;
+        final long maxEnd = Math.max(mStore.getEnd(mOrder[mid]),
+                Math.max(buildSubtreeMaxEnds(from, mid), buildSubtreeMaxEnds(mid + 1, to)));
+        mSubtreeMaxEnds[mid] = maxEnd;
+        return maxEnd;
+    }
+
+    /**
+     * 部分木の中から、指定した期間に重なる予定を開始時刻の昇順に検索する。
+     * 終了時刻の最大値が期間の開始時刻以前の部分木と、期間の終了時刻以降に始まる部分木は読み飛ばす。
+     *
+     * @param from   部分木の範囲の開始位置
+     * @param to     部分木の範囲の終了位置(この位置は含まない)
+     * @param begin  期間の開始時刻
+     * @param end    期間の終了時刻
+     * @param result 予定の番号を格納する配列
+     * @param count  これまでに見つかった予定の数
+     * @return これまでに見つかった予定の数に、この部分木で見つかった予定の数を加えた数
+     */
+    private int findOverlapping(final int from, final int to, final long begin, final long end,
+            final int[] result, int count) {
+        if ((from >= to) || (mStarts[from] >= end)) {
+            return count;
+        }
+        final int mid = (from + to) >>> 1;
+        if (mSubtreeMaxEnds[mid] <= begin) {
+            return count;
+        }
+        count = findOverlapping(from, mid, begin, end, result, count);
+        if (mStarts[mid] >= end) {
+            return count;
+        }
+        final int index = mOrder[mid];
+        if (mStore.getEnd(index) > begin) {
+            if (count < result.length) {
+                result[count] = index;
+            }
+            count++;
+        }
+        return findOverlapping(mid + 1, to, begin, end, result, count);
+    }
+
+    /**
+     * 指定した時刻より後に終わる予定を含む、最初の位置を検索する。
+     * (終了時刻の累積最大値が指定した時刻を超える最初の位置で、その位置の予定自体がこの条件を満たす)
+     *
+     * @param time 時刻
+     * @return 位置(ない場合は予定の数)
+     */
+    private int firstEndingAfter(final long time) {
+        int low = 0;
+        int high = mMaxEnds.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mMaxEnds[mid] > time) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 指定した時刻より後に始まる最初の位置を検索する。
+     *
+     * @param time 時刻
+     * @return 位置(ない場合は予定の数)
+     */
+    private int firstStartingAfter(final long time) {
+        int low = 0;
+        int high = mStarts.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mStarts[mid] > time) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 予定の番号を並べ替える。(安定なマージソート)
+     *
+     * @param order 予定の番号
+     * @param work  作業用の配列
+     * @param from  並べ替える範囲の開始位置
+     * @param to    並べ替える範囲の終了位置(この位置は含まない)
+     */
+    private void sort(final int[] order, final int[] work, final int from, final int to) {
+        if (to - from < 2) {
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        sort(order, work, from, mid);
+        sort(order, work, mid, to);
+        if (compare(order[mid - 1], order[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(order, from, work, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if ((j >= to) || ((i < mid) && (compare(work[i], work[j]) <= 0))) {
+                order[k] = work[i++];
+            } else {
+                order[k] = work[j++];
+            }
+        }
+    }
+
+    /**
+     * 予定の順序を比較する。開始時刻、終了時刻、タイトル、予定のIDの順に比較する。
+     *
+     * @param a 予定の番号
+     * @param b 予定の番号
+     * @return aが先の場合は負の値、同じ場合は0、bが先の場合は正の値
+     */
+    private int compare(final int a, final int b) {
+        int result = compareLong(mStore.getStart(a), mStore.getStart(b));
+        if (result == 0) {
+            result = compareLong(mStore.getEnd(a), mStore.getEnd(b));
+        }
+        if ((result == 0) && (mStore.getTitleIndex(a) != mStore.getTitleIndex(b))) {
+            result = mStore.getTitle(a).compareTo(mStore.getTitle(b));
+        }
+        if (result == 0) {
+            result = compareLong(mStore.getEvent(a).getEventId(),
+                    mStore.getEvent(b).getEventId());
+        }
+        return result;
+    }
+
+    /**
+     * long型の値を比較する。
+     */
+    private static int compareLong(final long a, final long b) {
+        return (a < b) ? -1 : ((a == b) ? 0 : 1);
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.CalendarContract;
+import android.support.wearable.provider.WearableCalendarContract;
+
+/**
+ * カレンダープロバイダー(Instances)への問い合わせを行うクラス。
+ *
+ * ウォッチフェイスが描画に使う列だけを取得し、終日の予定の除外と開始時刻順の並べ替えは
+ * カレンダープロバイダー側(SQL)で行う。
+ * 列の位置は{@link #PROJECTION}の順序で決まるため、行ごとに列を検索する必要はない。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class CalendarInstancesQuery {
+
+    /** 取得する列 */
+    private static final String[] PROJECTION = {
+            CalendarContract.Instances.EVENT_ID, // 予定のID
+            CalendarContract.Instances.BEGIN, // 回の開始時刻
+            CalendarContract.Instances.END, // 回の終了時刻
+            CalendarContract.Events.TITLE, // 予定のタイトル
+            CalendarContract.Events.CALENDAR_COLOR, // カレンダーの色
+    };
+
+    /** 予定のIDの列の位置 */
+    private static final int INDEX_EVENT_ID = 0;
+
+    /** 回の開始時刻の列の位置 */
+    private static final int INDEX_BEGIN = 1;
+
+    /** 回の終了時刻の列の位置 */
+    private static final int INDEX_END = 2;
+
+    /** 予定のタイトルの列の位置 */
+    private static final int INDEX_TITLE = 3;
+
+    /** カレンダーの色の列の位置 */
+    private static final int INDEX_CALENDAR_COLOR = 4;
+
+    /** 終日の予定を除外する条件(終日の予定はウォッチフェイスに描画しない) */
+    private static final String SELECTION = CalendarContract.Events.ALL_DAY + " = 0";
+
+    /** 終日の予定と、指定した時刻以前に始まる予定を除外する条件 */
+    private static final String SELECTION_AFTER = SELECTION
+            + " AND " + CalendarContract.Instances.BEGIN + " > ?";
+
+    /** 並び順(開始時刻の昇順) */
+    private static final String SORT_ORDER = CalendarContract.Instances.BEGIN + " ASC";
+
+    /**
+     * インスタンス化できないようにするためにデフォルトコンストラクターを抑制する
+     */
+    private CalendarInstancesQuery() {
+        throw new AssertionError();
+    }
+
+    /**
+     * 指定した期間の予定を問い合わせる。
+     *
+     * @param contentResolver コンテンツリゾルバー
+     * @param begin           期間の開始時刻
+     * @param end             期間の終了時刻
+     * @return カーソル(取得できなかった場合はnull)
+     */
+    public static Cursor query(final ContentResolver contentResolver, final long begin,
+            final long end) {
+        return contentResolver.query(buildUri(begin, end), PROJECTION, SELECTION, null,
+                SORT_ORDER);
+    }
+
+    /**
+     * 指定した期間の予定のうち、期間の開始時刻より後に始まる予定だけを問い合わせる。
+     * 期間の開始時刻と重なる予定は、前回の問い合わせで取得済みのものとして除外する。
+     *
+     * @param contentResolver コンテンツリゾルバー
+     * @param begin           期間の開始時刻
+     * @param end             期間の終了時刻
+     * @return カーソル(取得できなかった場合はnull)
+     */
+    public static Cursor queryAfter(final ContentResolver contentResolver, final long begin,
+            final long end) {
+        return contentResolver.query(buildUri(begin, end), PROJECTION, SELECTION_AFTER,
+                new String[]{Long.toString(begin)}, SORT_ORDER);
+    }
+
+    /**
+     * 指定した期間の予定を問い合わせるURIを作成する。
+     *
+     * @param begin 期間の開始時刻
+     * @param end   期間の終了時刻
+     * @return URI
+     */
+    private static Uri buildUri(final long begin, final long end) {
+        Uri.Builder builder = WearableCalendarContract.Instances.CONTENT_URI.buildUpon();
+        ContentUris.appendId(builder, begin);
+        ContentUris.appendId(builder, end);
+        return builder.build();
+    }
+
+    /**
+     * カーソルの現在の行からカレンダーの予定を取得する。
+     * 繰り返しの予定は、カレンダープロバイダーが展開した回(行)の開始・終了時刻を使う。
+     * (EXDATEで除外された回と、単一の回だけを変更・削除した例外の予定も反映されている)
+     *
+     * @param cursor {@link #query}で取得したカーソル
+     * @return カレンダーの予定
+     */
+    public static CalendarEvent getCalendarEvent(final Cursor cursor) {
+        CalendarEvent event = new CalendarEvent();
+        event.setEventId(cursor.getLong(INDEX_EVENT_ID));
+        event.setTitle(cursor.getString(INDEX_TITLE));
+        event.setDtStart(cursor.getLong(INDEX_BEGIN));
+        event.setDtEnd(cursor.getLong(INDEX_END));
+        event.setAllDay(false);
+        event.setCalendarColor(cursor.getInt(INDEX_CALENDAR_COLOR));
+        return event;
+    }
+}
@@ -4,6 +4,7 @@
 package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
 
 import java.util.Calendar;
+import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -21,36 +22,226 @@ public final class CalendarUtils {
         throw new AssertionError();
     }
 
+    /** 期間(DURATION)を解析できなかったことを表す値 */
+    public static final long INVALID_DURATION = Long.MIN_VALUE;
+
+    /** 期間(DURATION)の数値の上限(ミリ秒に変換した時に桁あふれしない値) */
+    private static final long MAX_DURATION_VALUE = Long.MAX_VALUE / TimeUnit.DAYS.toMillis(7);
+
+    /** 期間(DURATION)の単位の順序: なし */
+    private static final int UNIT_NONE = 0;
+
+    /** 期間(DURATION)の単位の順序: 日(D) */
+    private static final int UNIT_DAY = 1;
+
+    /** 期間(DURATION)の単位の順序: 時(H) */
+    private static final int UNIT_HOUR = 2;
+
+    /** 期間(DURATION)の単位の順序: 分(M) */
+    private static final int UNIT_MINUTE = 3;
+
+    /** 期間(DURATION)の単位の順序: 秒(S) */
+    private static final int UNIT_SECOND = 4;
+
+    /** 期間(DURATION)の単位の順序: 週(W)(他の単位と組み合わせられない) */
+    private static final int UNIT_WEEK = 5;
+
     /**
-     * ミリ秒からカレンダー情報を取得する(時、分、ミリ秒は0にリセットする)。
+     * iCalendar(RFC5545)形式の期間(DURATION)をミリ秒に変換する。
+     * http://tools.ietf.org/html/rfc5545#section-3.3.6
      *
-     * @param milliseconds ミリ秒
+     * 文字列を1文字ずつ走査し、オブジェクトを生成せずに変換する。
+     * 週(W)、日(D)、時(H)、分(M)、秒(S)と負の期間(-PT15M等)に対応する。
+     * 時・分・秒はTの後にだけ書ける。単位はW、D、H、M、Sの順に1回ずつ書け、
+     * 週(W)は他の単位と組み合わせられない。それ以外の形式は解析できないものとする。
+     *
+     * @param duration iCalendar(RFC5545)形式の期間(例: P1DT2H、-PT15M、P2W)
+     * @return ミリ秒(解析できない場合は{@link #INVALID_DURATION})
      */
-    public static Calendar getHourCalendarFromMillis(final long milliseconds) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTimeInMillis(milliseconds);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
+    public static long parseDuration(final CharSequence duration) {
+        if (duration == null) {
+            return INVALID_DURATION;
+        }
+        final int length = duration.length();
+        int index = 0;
+
+        // 符号を解析する
+        boolean negative = false;
+        if ((index < length)
+                && ((duration.charAt(index) == '+') || (duration.charAt(index) == '-'))) {
+            negative = (duration.charAt(index) == '-');
+            index++;
+        }
+        if ((index >= length) || (duration.charAt(index) != 'P')) {
+            return INVALID_DURATION;
+        }
+        index++;
 
-        return calendar;
+        // 数値と単位の組を解析する
+        long millis = 0;
+        long value = 0;
+        boolean hasDigit = false;
+        boolean inTime = false;
+        int lastUnit = UNIT_NONE;
+        for (; index < length; index++) {
+            final char c = duration.charAt(index);
+            if (lastUnit == UNIT_WEEK) {
+                // 週の後には何も書けない
+                return INVALID_DURATION;
+            }
+            if ((c >= '0') && (c <= '9')) {
+                value = (value * 10) + (c - '0');
+                if (value > MAX_DURATION_VALUE) {
+                    return INVALID_DURATION;
+                }
+                hasDigit = true;
+                continue;
+            }
+            if (c == 'T') {
+                if (inTime || hasDigit) {
+                    return INVALID_DURATION;
+                }
+                inTime = true;
+                continue;
+            }
+            if (!hasDigit) {
+                return INVALID_DURATION;
+            }
+
+            final int unit;
+            final long unitMillis;
+            switch (c) {
+                case 'W':
+                    unit = UNIT_WEEK;
+                    unitMillis = TimeUnit.DAYS.toMillis(7);
+                    break;
+                case 'D':
+                    unit = UNIT_DAY;
+                    unitMillis = TimeUnit.DAYS.toMillis(1);
+                    break;
+                case 'H':
+                    unit = UNIT_HOUR;
+                    unitMillis = TimeUnit.HOURS.toMillis(1);
+                    break;
+                case 'M':
+                    unit = UNIT_MINUTE;
+                    unitMillis = TimeUnit.MINUTES.toMillis(1);
+                    break;
+                case 'S':
+                    unit = UNIT_SECOND;
+                    unitMillis = TimeUnit.SECONDS.toMillis(1);
+                    break;
+                default:
+                    return INVALID_DURATION;
+            }
+
+            // 時・分・秒はTの後、週・日はTの前にだけ書け、単位の順序は逆にならない(重複もしない)
+            final boolean timeUnit = (unit >= UNIT_HOUR) && (unit <= UNIT_SECOND);
+            if ((timeUnit != inTime) || (unit <= lastUnit)
+                    || ((unit == UNIT_WEEK) && (lastUnit != UNIT_NONE))) {
+                return INVALID_DURATION;
+            }
+            millis += value * unitMillis;
+            if (millis < 0) {
+                return INVALID_DURATION;
+            }
+            value = 0;
+            hasDigit = false;
+            lastUnit = unit;
+        }
+
+        // 単位のない数値で終わっている場合、単位が1つもない場合、Tの後に単位がない場合は解析できない
+        if (hasDigit || (lastUnit == UNIT_NONE) || (inTime && (lastUnit < UNIT_HOUR))) {
+            return INVALID_DURATION;
+        }
+        return negative ? -millis : millis;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /** 1日のミリ秒 */
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * 負の数に対応した切り捨ての割り算
+     */
+    public static long floorDiv(final long x, final long y) {
+        long q = x / y;
+        if (((x % y) != 0) && ((x < 0) != (y < 0))) {
+            q--;
+        }
+        return q;
     }
 
     /**
-     * iCalendar(RFC5545)形式の時刻をミリ秒形式の時刻に変換する。
+     * 負の数に対応した剰余
+     */
+    public static long floorMod(final long x, final long y) {
+        return x - (floorDiv(x, y) * y);
+    }
+
+    /**
+     * ローカル日付と時刻をUTCのミリ秒に変換する。
+     *
+     * @param day       ローカル日付(1970-01-01からの日数)
+     * @param timeOfDay 時刻(0時からのミリ秒)
+     * @param timeZone  タイムゾーン
+     * @return UTCのミリ秒
+     */
+    public static long toUtcMillis(final long day, final long timeOfDay, final TimeZone timeZone) {
+        final long local = (day * DAY_MILLIS) + timeOfDay;
+        final int offset = timeZone.getOffset(local - timeZone.getRawOffset());
+        final long utc = local - offset;
+        final int actualOffset = timeZone.getOffset(utc);
+        return (actualOffset == offset) ? utc : local - actualOffset;
+    }
+
+    /**
+     * 年月日を1970-01-01からの日数に変換する。
      *
-     * @param iCalendar iCalendar(RFC5545)形式の時刻
-     *                  http://tools.ietf.org/html/rfc5545#section-3.8.2.5
-     * @return ミリ秒形式の時刻
-     */
-    public static long convertICalendarToMillis(final String iCalendar) {
-        // TODO [2015-04-29 09:23]
-        // RFC5545の仕様通りに変換アルゴリズムを実装する。
-        // 現状、GoogleカレンダーはP7200Sのように、
-        // 秒の設定しか入らないようだが、問題が起こらないように実装する必要がある。
-        // (正規表現でのチェック等も必要。)
-
-        String iCal = iCalendar.replace("P", "").replace("S", "");
-        return TimeUnit.SECONDS.toMillis(Integer.parseInt(iCal));
+     * @param year  年
+     * @param month 月(1 - 12)
+     * @param day   日
+     * @return 1970-01-01からの日数
+     */
+    public static long toEpochDay(final long year, final int month, final int day) {
+        // 3月始まりの年で計算する(うるう日を年の最後にするため)
+        final long y = (month <= 2) ? year - 1 : year;
+        final long era = floorDiv(y, 400);
+        final long yearOfEra = y - (era * 400);
+        final int m = (month + 9) % 12;
+        final long dayOfYear = ((153L * m) + 2) / 5 + day - 1;
+        final long dayOfEra = (yearOfEra * 365) + (yearOfEra / 4) - (yearOfEra / 100) + dayOfYear;
+        return (era * 146097) + dayOfEra - 719468;
+    }
+
+    /**
+     * 1970-01-01からの日数を、0000年1月からの月数に変換する。
+     *
+     * @param epochDay 1970-01-01からの日数
+     * @return 0000年1月からの月数
+     */
+    public static long getMonthIndex(final long epochDay) {
+        final long z = epochDay + 719468;
+        final long era = floorDiv(z, 146097);
+        final long dayOfEra = z - (era * 146097);
+        final long yearOfEra = (dayOfEra - (dayOfEra / 1460) + (dayOfEra / 36524)
+                - (dayOfEra / 146096)) / 365;
+        final long dayOfYear = dayOfEra - ((365 * yearOfEra) + (yearOfEra / 4) - (yearOfEra / 100));
+        final long mp = ((5 * dayOfYear) + 2) / 153;
+        final long month = (mp < 10) ? mp + 3 : mp - 9;
+        final long year = yearOfEra + (era * 400) + ((month <= 2) ? 1 : 0);
+        return (year * 12) + month - 1;
+    }
+
+    /**
+     * 曜日を取得する。
+     *
+     * @param epochDay 1970-01-01からの日数
+     * @return 曜日(0:日曜日 - 6:土曜日)
+     */
+    public static int getWeekday(final long epochDay) {
+        // 1970-01-01は木曜日
+        return (int) floorMod(epochDay + (Calendar.THURSDAY - Calendar.SUNDAY), 7);
     }
 }
@@ -4,36 +4,27 @@
 package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
 
 import android.content.BroadcastReceiver;
-import android.content.ContentUris;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.database.Cursor;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.RectF;
-import android.graphics.Typeface;
-import android.net.Uri;
+import android.os.BatteryManager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
-import android.provider.CalendarContract;
-import android.support.wearable.provider.WearableCalendarContract;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
-import android.text.format.Time;
 import android.util.Log;
 import android.view.Gravity;
 import android.view.SurfaceHolder;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
@@ -53,11 +44,14 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
 
     private static final String TAG = "WatchFaceService";
 
-    /**
-     * Update rate in milliseconds for interactive mode. We update once a second to advance the
-     * second hand.
-     */
-    private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.SECONDS.toMillis(1);
+    /** 1分のミリ秒 */
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** 時間が重なるカレンダーの予定を振り分けるレーンの数の上限 */
+    private static final int MAX_EVENT_LANES = 3;
+
+    /** 個別に描画するカレンダーの予定の数の上限(超えた分は予定ありの区間にまとめて描画する) */
+    private static final int MAX_DETAILED_EVENTS = 24;
 
     @Override
     public Engine onCreateEngine() {
@@ -68,25 +62,69 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
 
         static final int MSG_UPDATE_TIME = 0;
 
-        /** 短針の描画スタイル */
-        private Paint mHourPaint;
+        /** 時刻以外の理由で描画し直すメッセージ */
+        static final int MSG_REDRAW = 1;
+
+        /** 描画スタイル */
+        private RenderResources mRenderResources;
+
+        /** 文字盤 */
+        private DialLayer mDialLayer;
+
+        /** AmbientModeのウォッチフェイス */
+        private AmbientRenderer mAmbientRenderer;
+
+        /**
+         * 予定が変わった時、または文字盤の位置(時)が変わった時に変わる内容(カレンダーの予定、
+         * 次の予定のメッセージ)のレイヤー
+         */
+        private final CachedLayer mEventLayer = new CachedLayer();
+
+        /**
+         * 1分ごとに変わる内容(バッテリー、天気、日付・曜日、短針・長針)のレイヤー
+         */
+        private final CachedLayer mMinuteLayer = new CachedLayer();
+
+        /** {@link #mMinuteLayer}を描画した時刻(1970-01-01 00:00(UTC)からの分数) */
+        private long mMinuteLayerMinute = Long.MIN_VALUE;
+
+        /** カレンダーの次の予定の番号(ない場合は-1) */
+        private int mNextEventIndex = -1;
+
+        /** カレンダーの次の予定が始まっているかどうか */
+        private boolean mNextEventStarted = false;
 
-        /** 長針の描画スタイル */
-        private Paint mMinutePaint;
+        /** カレンダーの次の予定を検索した予定 */
+        private CalendarEventStore mNextEventStore;
 
-        /** 秒針の描画スタイル */
-        private Paint mSecondPaint;
+        /** カレンダーの次の予定のメッセージを作成した時のロケール */
+        private Locale mNextEventLocale;
 
-        /** 目盛り(小)の描画スタイル */
-        private Paint mTickPaintSmall;
+        /** カレンダーの次の予定のメッセージ(ない場合はnull) */
+        private String mNextEventMessage;
 
-        /** 目盛り(大)の描画スタイル */
-        private Paint mTickPaintBig;
+        /** カレンダーの次の予定のメッセージを上段に描画するかどうか */
+        private boolean mNextEventMessageUpperSide = false;
+
+        /** カレンダーの次の予定の残り時間の文字列 */
+        private final CountdownFormatter mCountdownFormatter = new CountdownFormatter();
+
+        /** カレンダーの次の予定の残り時間を描画する文字 */
+        private final GlyphAtlas mCountdownGlyphs = new GlyphAtlas();
 
         private boolean mMute;
 
-        /** 現在時刻 */
-        private Time mTime;
+        /** 現在時刻を取得する時計 */
+        private Clock mClock = Clock.SYSTEM;
+
+        /** 端末のタイムゾーン(オフセットを次の切り替わりまで保持する) */
+        private final TimeZoneCache mTimeZoneCache = new TimeZoneCache(TimeZone.getDefault());
+
+        /** 描画に使う現在時刻(描画の最初に1回だけ取得する) */
+        private final ClockSnapshot mNow = new ClockSnapshot(mTimeZoneCache.getDeviceZone());
+
+        /** 前回の描画のタイムゾーンのオフセット(夏時間の切り替わりの検出に使う) */
+        private int mLastOffsetMillis = Integer.MIN_VALUE;
 
         /** ウォッチフェイスの幅 */
         private int mWatchFaceWidth = 0;
@@ -106,11 +144,65 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
         /** バッテリーの最大値 */
         private int mBatteryScale = 0;// バッテリー最大値
 
+        /** 充電中かどうか */
+        private boolean mBatteryCharging = false;
+
+        /** 描画プロファイル */
+        private int mRenderProfile = RenderProfile.PROFILE_FULL;
+
+        /** 描画プロファイルで描画する内容(RenderProfile.FEATURE_*の論理和) */
+        private int mRenderFeatures = RenderProfile.getFeatures(RenderProfile.PROFILE_FULL);
+
+        /** 描画プロファイルの書き込み(スマートフォンの設定画面に表示する) */
+        private RenderProfilePublisher mRenderProfilePublisher;
+
         /** カレンダーの予定 */
-        private List<CalendarEvent> mCalendarEvents = new ArrayList<>();
+        private CalendarEventStore mCalendarEvents = CalendarEventStore.EMPTY;
+
+        /** カレンダーの予定の索引 */
+        private CalendarEventTimeline mCalendarEventTimeline =
+                new CalendarEventTimeline(CalendarEventStore.EMPTY);
+
+        /** カレンダーの予定の円弧の形状 */
+        private final EventRingGeometry mEventRingGeometry =
+                new EventRingGeometry(MAX_EVENT_LANES, MAX_DETAILED_EVENTS);
+
+        /** カレンダーの予定の枠(上側)の円 */
+        private final RectF mUpperSideOval = new RectF();
+
+        /** カレンダーの予定の枠(下側)の円 */
+        private final RectF mLowerSideOval = new RectF();
+
+        /** 予定ありの区間(個別に描画しない予定をまとめたもの)の形状 */
+        private final Path mBusyPath = new Path();
+
+        /** カレンダーの予定の枠(上側)の円(予定ごとのレーン) */
+        private final RectF mLaneUpperSideOval = new RectF();
+
+        /** カレンダーの予定の枠(下側)の円(予定ごとのレーン) */
+        private final RectF mLaneLowerSideOval = new RectF();
+
+        /** カレンダーの予定のタイトルの配置 */
+        private TitleLayoutCache mTitleLayoutCache;
+
+        /** バッテリーの残量を描画する円 */
+        private final RectF mBatteryOval = new RectF();
+
+        /** 日付・曜日 */
+        private final DateBoxCache mDateBoxCache = new DateBoxCache();
+
+        /** カレンダーの予定の読み込み */
+        private CalendarEventRepository mCalendarEventRepository;
+
+        /** 描画し直す時刻の決定 */
+        private final RedrawScheduler mRedrawScheduler = new RedrawScheduler();
+
+        /** 前回の描画から変わった入力 */
+        private final DirtyFlags mDirtyFlags = new DirtyFlags();
 
         /**
-         * Handler to update the time once a second in interactive mode.
+         * Handler to update the time in interactive mode. The next update is scheduled by
+         * {@link #scheduleNextRedraw(long)} when the watch face is drawn.
          */
         final Handler mUpdateTimeHandler = new Handler() {
             @Override
@@ -118,16 +210,28 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
                 switch (message.what) {
                     case MSG_UPDATE_TIME:
                         if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                            Log.v(TAG, "updating time");
+                            Log.v(TAG, "updating time: skipped wakeups = "
+                                    + mRedrawScheduler.getSkippedWakeups());
                         }
                         invalidate();
                         if (shouldTimerBeRunning()) {
-                            long timeMs = System.currentTimeMillis();
-                            long delayMs = INTERACTIVE_UPDATE_RATE_MS
-                                    - (timeMs % INTERACTIVE_UPDATE_RATE_MS);
+                            // 描画されなかった場合に備えて、次の分の始まりにも描画し直す
+                            // (描画された場合は、scheduleNextRedraw()で予約し直す)
+                            long timeMs = mClock.currentTimeMillis();
+                            long delayMs = MINUTE_MILLIS - (timeMs % MINUTE_MILLIS);
                             mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
                         }
                         break;
+                    case MSG_REDRAW:
+                        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                            Log.v(TAG, "redraw: reasons = " + mRedrawScheduler.consume()
+                                    + ", coalesced requests = "
+                                    + mRedrawScheduler.getCoalescedRequests());
+                        } else {
+                            mRedrawScheduler.consume();
+                        }
+                        invalidate();
+                        break;
                 }
             }
         };
@@ -135,8 +239,11 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
         final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mTime.clear(intent.getStringExtra("time-zone"));
-                mTime.setToNow();
+                final String timeZone = intent.getStringExtra("time-zone");
+                if (updateTimeZone((timeZone != null) ? TimeZone.getTimeZone(timeZone)
+                        : TimeZone.getDefault())) {
+                    requestRedraw(RedrawScheduler.REASON_TIME_ZONE);
+                }
             }
         };
 
@@ -145,8 +252,21 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
         final private BroadcastReceiver mBatteryReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mBatteryLevel = intent.getIntExtra("level", 0); // バッテリーの残量
-                mBatteryScale = intent.getIntExtra("scale", 0); // バッテリーの最大値
+                final int level = intent.getIntExtra("level", 0); // バッテリーの残量
+                final int scale = intent.getIntExtra("scale", 0); // バッテリーの最大値
+                final boolean charging = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+
+                // 温度や電圧だけが変わった通知は、描画に影響しないため無視する
+                if ((level == mBatteryLevel) && (scale == mBatteryScale)
+                        && (charging == mBatteryCharging)) {
+                    return;
+                }
+                mBatteryLevel = level;
+                mBatteryScale = scale;
+                mBatteryCharging = charging;
+                mDirtyFlags.mark(DirtyFlags.BATTERY);
+                updateRenderProfile();
+                requestRedraw(RedrawScheduler.REASON_BATTERY);
             }
         };
 
@@ -158,6 +278,9 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
          */
         boolean mLowBitAmbient;
 
+        /** 焼き付き防止が必要な端末かどうか */
+        boolean mBurnInProtection;
+
         /**
          * ここで、使用する画像を読み込んでおく
          */
@@ -181,45 +304,43 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
                                     | WatchFaceStyle.PROTECT_HOTWORD_INDICATOR) // 背景の設定
                             .build());
 
-            // 短針の描画スタイルを設定する
-            mHourPaint = new Paint();
-            mHourPaint.setARGB(255, 0, 0, 0);
-            mHourPaint.setStrokeWidth(12.f);
-            mHourPaint.setAntiAlias(true);
-            mHourPaint.setStrokeCap(Paint.Cap.ROUND);
-
-            // 長針の描画スタイルを設定する
-            mMinutePaint = new Paint();
-            mMinutePaint.setARGB(255, 0, 0, 0);
-            mMinutePaint.setStrokeWidth(6.f);
-            mMinutePaint.setAntiAlias(true);
-            mMinutePaint.setStrokeCap(Paint.Cap.ROUND);
-
-            // 秒針の描画スタイルを設定する
-            mSecondPaint = new Paint();
-            mSecondPaint.setARGB(255, 255, 0, 0);
-            mSecondPaint.setStrokeWidth(3.f);
-            mSecondPaint.setAntiAlias(true);
-            mSecondPaint.setStrokeCap(Paint.Cap.ROUND);
-
-            // 目盛り(小)の描画スタイルを設定する
-            mTickPaintSmall = new Paint();
-            mTickPaintSmall.setARGB(100, 0, 0, 0);
-            mTickPaintSmall.setStrokeWidth(2.f);
-            mTickPaintSmall.setAntiAlias(true);
-
-            // 目盛り(大)の描画スタイルを設定する
-            mTickPaintBig = new Paint();
-            mTickPaintBig.setARGB(150, 0, 0, 0);
-            mTickPaintBig.setStrokeWidth(8.f);
-            mTickPaintBig.setAntiAlias(true);
-
-            mTime = new Time();
+            // 描画スタイルを設定する
+            mRenderResources = new RenderResources();
+            mDialLayer = new DialLayer(mRenderResources);
+            mAmbientRenderer = new AmbientRenderer();
+            mTitleLayoutCache = new TitleLayoutCache(mRenderResources.getEventTitlePaint());
+
+            if (isInDebugMode) {
+                mClock = createDebugClock();
+            }
+
+            // 描画プロファイルの書き込みを設定する
+            mRenderProfilePublisher = new RenderProfilePublisher(CalendarWatchFaceService.this);
+            mRenderProfilePublisher.publish(mRenderProfile);
+            mRenderProfilePublisher.connect();
+
+            // カレンダーの予定の読み込みを設定する
+            mCalendarEventRepository = new CalendarEventRepository(getContentResolver(),
+                    new CalendarEventRepository.OnEventsChangedListener() {
+                        @Override
+                        public void onEventsChanged() {
+                            mDirtyFlags.mark(DirtyFlags.CALENDAR);
+                            requestRedraw(RedrawScheduler.REASON_CALENDAR);
+                        }
+                    });
         }
 
         @Override
         public void onDestroy() {
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mUpdateTimeHandler.removeMessages(MSG_REDRAW);
+            mCalendarEventRepository.release();
+            mDialLayer.release();
+            mAmbientRenderer.release();
+            mEventLayer.release();
+            mMinuteLayer.release();
+            mCountdownGlyphs.release();
+            mRenderProfilePublisher.disconnect();
             super.onDestroy();
         }
 
@@ -227,8 +348,13 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
         public void onPropertiesChanged(Bundle properties) {
             super.onPropertiesChanged(properties);
             mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
+            mBurnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
+
+            // 端末の特性はAmbientModeの描画だけに影響する(同じ値の場合は何もしない)
+            mAmbientRenderer.setDeviceProperties(mLowBitAmbient, mBurnInProtection);
             if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "onPropertiesChanged: low-bit ambient = " + mLowBitAmbient);
+                Log.d(TAG, "onPropertiesChanged: low-bit ambient = " + mLowBitAmbient
+                        + ", burn-in protection = " + mBurnInProtection);
             }
         }
 
@@ -242,7 +368,7 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
             if (Log.isLoggable(TAG, Log.DEBUG)) {
                 Log.d(TAG, "onTimeTick: ambient = " + isInAmbientMode());
             }
-            invalidate();
+            requestRedraw(RedrawScheduler.REASON_TIME);
         }
 
         /**
@@ -255,14 +381,9 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
             if (Log.isLoggable(TAG, Log.DEBUG)) {
                 Log.d(TAG, "onAmbientModeChanged: " + inAmbientMode);
             }
-            if (mLowBitAmbient) {
-                boolean antiAlias = !inAmbientMode;
-                mHourPaint.setAntiAlias(antiAlias);
-                mMinutePaint.setAntiAlias(antiAlias);
-                mSecondPaint.setAntiAlias(antiAlias);
-                mTickPaintSmall.setAntiAlias(antiAlias);
-            }
-            invalidate();
+            // 予定のレイヤーと1分ごとに変わる内容のレイヤーはAmbientModeに依存しないため、作り直さない
+            // (AmbientModeの間に変わった入力は、mDirtyFlagsに記録されている)
+            requestRedraw(RedrawScheduler.REASON_SETTINGS);
 
             // Whether the timer should be running depends on whether we're in ambient mode (as well
             // as whether we're visible), so we may need to start or stop the timer.
@@ -275,11 +396,80 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
             boolean inMuteMode = (interruptionFilter == WatchFaceService.INTERRUPTION_FILTER_NONE);
             if (mMute != inMuteMode) {
                 mMute = inMuteMode;
-                mHourPaint.setAlpha(inMuteMode ? 100 : 255);
-                mMinutePaint.setAlpha(inMuteMode ? 100 : 255);
-                mSecondPaint.setAlpha(inMuteMode ? 80 : 255);
-                invalidate();
+                mRenderResources.setMute(inMuteMode);
+                mAmbientRenderer.setMute(inMuteMode);
+                mDirtyFlags.mark(DirtyFlags.STYLE);
+                updateRenderProfile();
+                requestRedraw(RedrawScheduler.REASON_SETTINGS);
+            }
+        }
+
+        /**
+         * バッテリーの残量、充電中かどうか、ミュートモードかどうかから、描画プロファイルを選び直す。
+         */
+        private void updateRenderProfile() {
+            final int profile = RenderProfile.select(mRenderProfile, mBatteryLevel, mBatteryScale,
+                    mBatteryCharging, mMute);
+            if (profile == mRenderProfile) {
+                return;
+            }
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "updateRenderProfile: " + mRenderProfile + " -> " + profile);
+            }
+            mRenderProfile = profile;
+            mRenderFeatures = RenderProfile.getFeatures(profile);
+            mRenderResources.setAntiAlias(hasFeature(RenderProfile.FEATURE_ANTI_ALIAS));
+            mDirtyFlags.mark(DirtyFlags.STYLE);
+            mRenderProfilePublisher.publish(profile);
+
+            // 秒針を描画するかどうかで次に描画する時刻が変わるため、予約し直す
+            updateTimer();
+        }
+
+        /**
+         * 描画プロファイルで描画する内容かどうかを取得する。
+         *
+         * @param feature 描画する内容(RenderProfile.FEATURE_*)
+         * @return 描画する場合はtrue
+         */
+        private boolean hasFeature(final int feature) {
+            return (mRenderFeatures & feature) != 0;
+        }
+
+        /**
+         * 端末のタイムゾーンを更新する。
+         * タイムゾーンが変わった場合は、予定の位置を新しいタイムゾーンに合わせ直す。
+         * (カレンダープロバイダーには問い合わせない)
+         *
+         * @param timeZone 端末のタイムゾーン
+         * @return タイムゾーンが変わった場合はtrue
+         */
+        private boolean updateTimeZone(final TimeZone timeZone) {
+            if (!mTimeZoneCache.setDeviceTimeZone(timeZone)) {
+                return false;
+            }
+            mNow.setZone(mTimeZoneCache.getDeviceZone());
+            mLastOffsetMillis = Integer.MIN_VALUE; // オフセットの変化として重ねて扱わない
+            mDirtyFlags.mark(DirtyFlags.TIME_ZONE);
+            mCalendarEventRepository.rebase();
+            return true;
+        }
+
+        /**
+         * タイムゾーンのオフセットが前回の描画から変わっていれば(夏時間の切り替わり)、
+         * 予定の位置を新しいオフセットに合わせ直す。
+         * (オフセットは{@link TimeZoneCache}が次の切り替わりまで保持しているため、比較のみを行う)
+         */
+        private void checkOffsetChanged() {
+            final int offset = mNow.getOffsetMillis();
+            if (offset == mLastOffsetMillis) {
+                return;
+            }
+            if (mLastOffsetMillis != Integer.MIN_VALUE) {
+                mDirtyFlags.mark(DirtyFlags.TIME_ZONE);
+                mCalendarEventRepository.rebase();
             }
+            mLastOffsetMillis = offset;
         }
 
         /**
@@ -291,7 +481,9 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
             // 変数を設定する。
-            mTime.setToNow();
+            // (現在時刻はここで1回だけ取得し、以降の描画処理ではmNowを参照する)
+            mNow.update(mClock);
+            checkOffsetChanged();
             mWatchFaceWidth = bounds.width();
             mWatchFaceHeight = bounds.height();
             mCenterX = mWatchFaceWidth / 2f;
@@ -300,20 +492,128 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
                 setDummyDataForDebugMode();
             }
 
+            // AmbientModeの場合は、描画済みの文字盤に短針・長針を重ねるだけにする
+            // (カレンダーの予定は表示しないため、参照しない)
+            if (isInAmbientMode()) {
+                mAmbientRenderer.draw(canvas, mWatchFaceWidth, mWatchFaceHeight, mNow.getHour(),
+                        mNow.getMinute(), isInMoto360Mode);
+                return;
+            }
+
+            // 前回の描画から変わった入力を取り出し、その入力に依存するキャッシュだけを無効にする
+            final int dirty = mDirtyFlags.consume();
+            if ((dirty & DirtyFlags.DATE_BOX) != 0) {
+                mDateBoxCache.invalidate();
+            }
+            if ((dirty & DirtyFlags.EVENT_RING) != 0) {
+                mEventRingGeometry.invalidate();
+            }
+            if ((dirty & DirtyFlags.EVENT_LAYER) != 0) {
+                mEventLayer.invalidate();
+            }
+            if ((dirty & DirtyFlags.MINUTE_LAYER) != 0) {
+                mMinuteLayer.invalidate();
+            }
+
             // カレンダーの情報を取得する。
-            setCalendarEvents();
+            setCalendarEvents((dirty & DirtyFlags.CALENDAR) != 0);
 
             // ウォッチフェイスの描画をする
-            // (文字盤の外側から順番に描画していく)
+            // (変わる頻度の低いレイヤーから順番に重ねていく)
+            final long currentTimeMillis = mNow.getEpochMillis();
+            updateNextCalendarEvent(currentTimeMillis);
             drawWatchFaceBase(canvas); // 時計の文字盤
-            if (!isInAmbientMode()) {
-                drawBatteryLevel(canvas); // バッテリー残量(外周)
-                drawCalendarEvents(canvas); // カレンダーの予定(外周)
-                drawNextCalendarEvent(canvas); // カレンダーの次の予定(中央・上側)
-                drawWeather(canvas); // 天気(左側)
-                drawCalendar(canvas); // 日付・曜日(右側)
+            drawEventLayer(canvas); // 予定が変わった時に変わる内容
+            drawMinuteLayer(canvas, currentTimeMillis); // 1分ごとに変わる内容
+            if (hasFeature(RenderProfile.FEATURE_COUNTDOWN)) {
+                drawNextEventTime(canvas, currentTimeMillis); // カレンダーの次の予定の残り時間
+            }
+            if (hasFeature(RenderProfile.FEATURE_SECOND_HAND)) {
+                drawSecondHand(canvas); // 秒針
+            }
+
+            // 表示している内容が次に変わる時刻に、描画し直す
+            scheduleNextRedraw(currentTimeMillis);
+        }
+
+        /**
+         * 時刻以外の理由で描画し直す。
+         * 描画されるまでの間に複数の要求があった場合は、1回の描画にまとめる。
+         *
+         * @param reason 描画の理由(RedrawScheduler.REASON_*)
+         */
+        private void requestRedraw(final int reason) {
+            if (mRedrawScheduler.request(reason)) {
+                mUpdateTimeHandler.sendEmptyMessage(MSG_REDRAW);
+            }
+        }
+
+        /**
+         * 表示している内容(秒針、残り時間、短針・長針)が次に変わる時刻に、描画し直すように予約する。
+         *
+         * @param currentTimeMillis 現在時刻
+         */
+        private void scheduleNextRedraw(final long currentTimeMillis) {
+            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            if (!shouldTimerBeRunning()) {
+                return;
             }
-            drawWatchHands(canvas); // 短針・長針・秒針
+            final long next = mRedrawScheduler.getNextRedrawTime(currentTimeMillis,
+                    hasFeature(RenderProfile.FEATURE_SECOND_HAND),
+                    hasFeature(RenderProfile.FEATURE_COUNTDOWN)
+                            ? getCountdownRemaining(currentTimeMillis)
+                            : RedrawScheduler.NO_COUNTDOWN);
+            mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, next - currentTimeMillis);
+        }
+
+        /**
+         * 予定が変わった時、または文字盤の位置(時)が変わった時に変わる内容を描画する。
+         * 内容が変わっていない場合は、前回描画したビットマップを転写する。
+         *
+         * @param canvas 描画に利用するキャンバス
+         */
+        private void drawEventLayer(final Canvas canvas) {
+            // 予定、ウォッチフェイスの大きさ、文字盤の位置が変わった場合だけ、円弧の形状を計算し直す
+            if (mEventRingGeometry.update(mCalendarEventTimeline, mWatchFaceWidth,
+                    mWatchFaceHeight, mNow)) {
+                updateEventRingPaths();
+                mEventLayer.invalidate();
+            }
+            if (!mEventLayer.isValid(mWatchFaceWidth, mWatchFaceHeight)) {
+                final Canvas layer = mEventLayer.beginDraw(mWatchFaceWidth, mWatchFaceHeight);
+                drawCalendarEvents(layer); // カレンダーの予定(外周)
+                if (hasFeature(RenderProfile.FEATURE_NEXT_EVENT_MESSAGE)) {
+                    drawNextEventMessage(layer); // カレンダーの次の予定(中央・上側)
+                }
+                mEventLayer.endDraw();
+            }
+            mEventLayer.draw(canvas);
+        }
+
+        /**
+         * 1分ごとに変わる内容を描画する。
+         * 内容が変わっていない場合は、前回描画したビットマップを転写する。
+         *
+         * @param canvas            描画に利用するキャンバス
+         * @param currentTimeMillis 現在時刻
+         */
+        private void drawMinuteLayer(final Canvas canvas, final long currentTimeMillis) {
+            final long minute = CalendarUtils.floorDiv(currentTimeMillis, MINUTE_MILLIS);
+            if ((minute != mMinuteLayerMinute)
+                    || !mMinuteLayer.isValid(mWatchFaceWidth, mWatchFaceHeight)) {
+                final Canvas layer = mMinuteLayer.beginDraw(mWatchFaceWidth, mWatchFaceHeight);
+                if (hasFeature(RenderProfile.FEATURE_BATTERY)) {
+                    drawBatteryLevel(layer); // バッテリー残量(外周)
+                }
+                drawWeather(layer); // 天気(左側)
+                if (hasFeature(RenderProfile.FEATURE_DATE)) {
+                    drawCalendar(layer); // 日付・曜日(右側)
+                }
+                drawHourAndMinuteHands(layer); // 短針・長針
+                mMinuteLayer.endDraw();
+                mMinuteLayerMinute = minute;
+            }
+            mMinuteLayer.draw(canvas);
         }
 
         /**
@@ -330,10 +630,13 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
                 registerReceiver();
 
                 // Update time zone in case it changed while we weren't visible.
-                mTime.clear(TimeZone.getDefault().getID());
-                mTime.setToNow();
+                updateTimeZone(TimeZone.getDefault());
+
+                // 非表示の間に予定が変わった場合、表示範囲が切り替わった場合だけ読み込み直す
+                mCalendarEventRepository.start();
             } else {
                 unregisterReceiver();
+                mCalendarEventRepository.stop();
             }
 
             // Whether the timer should be running depends on whether we're visible (as well as
@@ -396,130 +699,27 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
 
         /**
          * カレンダーの予定を設定する。
-         */
-        private void setCalendarEvents() {
-            // デバッグモードの場合、テスト用ダミーデータを設定して終了する
-            if (isInDebugMode) {
-                setDummyCalendarEventsForDebugMode();
-                return;
-            }
-
-            // カレンダープロバイダーを設定する
-            final long startTime = System.currentTimeMillis();
-            Uri.Builder builder = WearableCalendarContract.Instances.CONTENT_URI.buildUpon();
-            ContentUris.appendId(builder, startTime);
-            ContentUris.appendId(builder, startTime + TimeUnit.HOURS.toMillis(12));
-            Cursor cursor = getContentResolver().query(builder.build(), null, null, null, null);
-
-            // カレンダープロバイダーからカレンダーの予定を取得する
-            mCalendarEvents.clear();
-            while (cursor.moveToNext()) {
-                mCalendarEvents.add(getCalendarEvent(cursor, startTime));
-            }
-            Collections.sort(mCalendarEvents, new CalendarEventComparator());
-        }
-
-        /**
-         * カレンダーの予定をカーソルから取得する。
-         *
-         * @param cursor            カーソル
-         * @param currentTimeMillis 現在時刻
-         * @return カレンダーの予定
-         */
-        private CalendarEvent getCalendarEvent(final Cursor cursor, final long currentTimeMillis) {
-            // カレンダーの予定をカーソルから取得する
-            CalendarEvent event = new CalendarEvent();
-            event.setTitle(cursor.getString(
-                    cursor.getColumnIndex(CalendarContract.Events.TITLE))); // 予定のタイトル
-            event.setDtStart(
-                    cursor.getLong(cursor.getColumnIndex(CalendarContract.Events.DTSTART))); // 開始時刻
-            event.setDtEnd(
-                    cursor.getLong(cursor.getColumnIndex(CalendarContract.Events.DTEND))); // 終了時刻
-            event.setAllDay(
-                    cursor.getInt(cursor.getColumnIndex(CalendarContract.Events.ALL_DAY)) == 1
-                            ? true : false); // 終日
-            event.setTimeZone(cursor.getString(
-                    cursor.getColumnIndex(CalendarContract.Events.EVENT_TIMEZONE))); // タイムゾーン
-            event.setEventLocation(cursor.getString(
-                    cursor.getColumnIndex(CalendarContract.Events.EVENT_LOCATION))); // 場所
-            event.setCalendarId(cursor.getInt(
-                    cursor.getColumnIndex(CalendarContract.Events.CALENDAR_ID))); // カレンダー
-            event.setCalendarColor(cursor.getInt(
-                    cursor.getColumnIndex(CalendarContract.Events.CALENDAR_COLOR))); // カレンダーの色
-            event.setDescription(cursor.getString(
-                    cursor.getColumnIndex(CalendarContract.Events.DESCRIPTION))); // 説明
-            event.setRrule(cursor.getString(
-                    cursor.getColumnIndex(CalendarContract.Events.RRULE))); // 繰り返し(RRULE)
-            event.setRdate(cursor.getString(
-                    cursor.getColumnIndex(CalendarContract.Events.RDATE))); // 繰り返し(RDATE)
-            event.setDuration(cursor.getString(
-                    cursor.getColumnIndex(CalendarContract.Events.DURATION))); // 繰り返し(DURATION)
-
-            // カレンダーの予定を調整する
-            Calendar currentHour = CalendarUtils.getHourCalendarFromMillis(currentTimeMillis);
-            setRepetitiveEvent(event, currentHour);
-            setOvertimeEvent(event, currentHour);
-
-            return event;
-        }
-
-        /**
-         * 繰り返しの予定の開始時刻、終了時刻を設定する。
-         *
-         * 繰り返しの予定の場合、DTSTARTには繰り返しの最初の開始時刻、DTENDには0が設定されている。
-         * 開始時刻、終了時刻の情報を取得するには、DTSTART、DTENDの値ではなく、
-         * RRULE、RDATE、DURATIONに設定されている情報を基に計算する必要がある。
          *
-         * @param event       カレンダーの予定
-         * @param currentTime 現在時刻
-         */
-        private void setRepetitiveEvent(final CalendarEvent event, final Calendar currentTime) {
-            if ((event.getRrule() != null) && !event.getRrule().isEmpty()) {
-                // 開始時刻を設定する
-                Calendar startTime = Calendar.getInstance();
-                startTime.setTimeInMillis(event.getDtStart());
-                startTime.set(Calendar.YEAR, currentTime.get(Calendar.YEAR));
-                startTime.set(Calendar.MONTH, currentTime.get(Calendar.MONTH));
-                startTime.set(Calendar.DAY_OF_MONTH, currentTime.get(Calendar.DAY_OF_MONTH));
-                event.setDtStart(startTime.getTimeInMillis());
-
-                // 終了時刻を設定する
-                Calendar endTime = Calendar.getInstance();
-                endTime.setTimeInMillis(event.getDtStart());
-                endTime.add(Calendar.MILLISECOND,
-                        (int) CalendarUtils.convertICalendarToMillis(event.getDuration()));
-                event.setDtEnd(endTime.getTimeInMillis());
-            }
-        }
-
-        /**
-         * 開始時間が現在時刻(時)より前の場合、開始時間を短縮する。
-         * また、終了時間が現在時刻の12時間以降になる場合、終了時間を短縮する。
+         * カレンダープロバイダーへの問い合わせは{@link CalendarEventRepository}が
+         * バックグラウンドで行うため、ここでは最後に読み込んだ結果を参照するだけにする。
          *
-         * @param event       カレンダーの予定
-         * @param currentHour 現在時刻(時)
+         * @param changed 予定が読み込み直された場合はtrue
          */
-        private void setOvertimeEvent(final CalendarEvent event, final Calendar currentHour) {
-            // 開始時刻を設定する。
-            final Calendar startHour = CalendarUtils.getHourCalendarFromMillis(event.getDtStart());
-            final long startTimeDiff = startHour.getTimeInMillis() - currentHour.getTimeInMillis();
-            if (TimeUnit.MILLISECONDS.toHours(startTimeDiff) <= -1) {
-                startHour.set(Calendar.YEAR, currentHour.get(Calendar.YEAR));
-                startHour.set(Calendar.MONTH, currentHour.get(Calendar.MONTH));
-                startHour.set(Calendar.DAY_OF_MONTH, currentHour.get(Calendar.DAY_OF_MONTH));
-                startHour.set(Calendar.HOUR_OF_DAY, currentHour.get(Calendar.HOUR_OF_DAY));
-                event.setDtStart(startHour.getTimeInMillis());
+        private void setCalendarEvents(final boolean changed) {
+            // デバッグモードの場合、テスト用ダミーデータを設定する
+            if (isInDebugMode) {
+                setDummyCalendarEventsForDebugMode();
+            } else {
+                mCalendarEventRepository.refreshIfWindowExpired(mNow.getEpochMillis());
+                if (changed) {
+                    mCalendarEvents = mCalendarEventRepository.getEvents();
+                }
             }
 
-            // 終了時刻を設定する。
-            final Calendar endHour = CalendarUtils.getHourCalendarFromMillis(event.getDtEnd());
-            final long endTimeDiff = endHour.getTimeInMillis() - currentHour.getTimeInMillis();
-            if (TimeUnit.MILLISECONDS.toHours(endTimeDiff) >= 12) {
-                endHour.set(Calendar.YEAR, currentHour.get(Calendar.YEAR));
-                endHour.set(Calendar.MONTH, currentHour.get(Calendar.MONTH));
-                endHour.set(Calendar.DAY_OF_MONTH, currentHour.get(Calendar.DAY_OF_MONTH));
-                endHour.set(Calendar.HOUR_OF_DAY, currentHour.get(Calendar.HOUR_OF_DAY) + 12);
-                event.setDtEnd(endHour.getTimeInMillis());
+            // 予定が読み込み直された場合は、索引を作り直す
+            if (mCalendarEventTimeline.getStore() != mCalendarEvents) {
+                mCalendarEventTimeline = new CalendarEventTimeline(mCalendarEvents);
+                mEventLayer.invalidate();
             }
         }
 
@@ -531,38 +731,8 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
          * @param canvas 描画に利用するキャンバス
          */
         private void drawWatchFaceBase(final Canvas canvas) {
-            // 背景を描画する
-            canvas.drawColor(!isInAmbientMode() ? Color.WHITE : Color.BLACK);
-
-            // 目盛りの色を設定する
-            final int tickColor = !isInAmbientMode() ? Color.BLACK : Color.GRAY;
-            mTickPaintSmall.setColor(tickColor);
-            mTickPaintBig.setColor(tickColor);
-
-            // 目盛りを描画する
-            for (int tickIndex = 0; tickIndex < 60; tickIndex++) {
-                float innerTickRadius = mCenterX - 20;
-                float outerTickRadius = mCenterX - 5;
-                Paint paint = mTickPaintSmall;
-                if ((tickIndex % 5) == 0) {
-                    innerTickRadius = mCenterX - 35;
-                    outerTickRadius = mCenterX - 5;
-                    paint = mTickPaintBig;
-                }
-
-                final float tickRot = (float) (tickIndex * Math.PI * 2 / 60);
-                canvas.drawLine(
-                        mCenterX + (float) Math.sin(tickRot) * innerTickRadius,
-                        mCenterY + (float) -Math.cos(tickRot) * innerTickRadius,
-                        mCenterX + (float) Math.sin(tickRot) * outerTickRadius,
-                        mCenterY + (float) -Math.cos(tickRot) * outerTickRadius,
-                        paint);
-            }
-
-            // Moto 360用の描画をする
-            if (isInMoto360Mode) {
-                drawMoto360ForDebugMode(canvas);
-            }
+            // 背景、目盛り、カレンダーの予定の枠(円)は、描画済みのビットマップを転写する
+            mDialLayer.draw(canvas, mWatchFaceWidth, mWatchFaceHeight, isInMoto360Mode);
         }
 
         /**
@@ -571,32 +741,23 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
          * @param canvas 描画に利用するキャンバス
          */
         private void drawBatteryLevel(final Canvas canvas) {
-            // 描画スタイルを設定する
-            Paint paint = new Paint();
-            paint.setAntiAlias(true);
-            paint.setColor(Color.BLUE);
-            paint.setAlpha(100);
-            paint.setStrokeWidth(5.f);
-            paint.setStrokeCap(Paint.Cap.ROUND);
-
             // 線を描画する
             final float width = mWatchFaceWidth - 35;
             final float height = mWatchFaceHeight - 35;
             final float left = (mWatchFaceWidth - width) / 2;
             final float top = (mWatchFaceHeight - height) / 2;
-            final RectF oval = new RectF(left, top, left + width, top + height);
+            mBatteryOval.set(left, top, left + width, top + height);
             final float startAngle = -90;
             final float sweepAngle = ((float) mBatteryLevel / mBatteryScale) * 360;
-            paint.setStyle(Paint.Style.STROKE);
-            canvas.drawArc(oval, startAngle, sweepAngle, false, paint);
+            canvas.drawArc(mBatteryOval, startAngle, sweepAngle, false,
+                    mRenderResources.getBatteryArcPaint());
 
             // 先端を描画する
-            float rot = (float) ((mBatteryLevel / (mBatteryScale / 2f)) * Math.PI);
-            float cx = mCenterX + ((float) Math.sin(rot) * (width / 2f));
-            float cy = mCenterY + ((float) -Math.cos(rot) * (width / 2f));
+            final float turns = (float) mBatteryLevel / mBatteryScale;
+            float cx = mCenterX + (TrigTable.sinTurns(turns) * (width / 2f));
+            float cy = mCenterY + (-TrigTable.cosTurns(turns) * (width / 2f));
             float radius = 6;
-            paint.setStyle(Paint.Style.FILL_AND_STROKE);
-            canvas.drawCircle(cx, cy, radius, paint);
+            canvas.drawCircle(cx, cy, radius, mRenderResources.getBatteryTipPaint());
         }
 
         /**
@@ -605,97 +766,106 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
          * @param canvas 描画に利用するキャンバス
          */
         private void drawCalendarEvents(final Canvas canvas) {
-            for (CalendarEvent event : mCalendarEvents) {
-                // 終日の予定はウォッチフェイスに描画しない
-                if (event.isAllDay()) {
-                    continue;
-                }
+            // タイトルを描画する円弧と、円弧に収まるように省略したタイトルを設定する
+            // (円弧の形状、言語、書体が変わっていなければ何もしない)
+            mTitleLayoutCache.update(mEventRingGeometry, mUpperSideOval);
+
+            // 予定ありの区間をまとめて描画してから、個別の予定を外側のレーンの予定から順に重ねる
+            // (終日の予定はウォッチフェイスに描画しない)
+            final int busyCount = mEventRingGeometry.getBusyCount();
+            if (busyCount > 0) {
+                canvas.drawPath(mBusyPath, mRenderResources.getEventBusyPaint());
+            }
+            final int count = mEventRingGeometry.getDrawCount();
+            for (int i = 0; i < count; i++) {
+                drawCalendarEvent(canvas, mEventRingGeometry.getDrawIndex(i));
+            }
 
-                drawCalendarEvent(canvas, event);
+            // 枠(円)は文字盤に描画済みのため、予定で隠れた場合だけ描画し直す
+            if ((count > 0) || (busyCount > 0)) {
+                drawCalendarEventsFrame(canvas);
+            }
+        }
+
+        /**
+         * カレンダーの予定の円弧の枠の描画に使う形状を設定する。
+         */
+        private void updateEventRingPaths() {
+            final EventRingGeometry geometry = mEventRingGeometry;
+            final float cx = geometry.getCenterX();
+            final float cy = geometry.getCenterY();
+            final float outer = geometry.getOuterRadius();
+            final float inner = geometry.getInnerRadius();
+            mUpperSideOval.set(cx - outer, cy - outer, cx + outer, cy + outer);
+            mLowerSideOval.set(cx - inner, cy - inner, cx + inner, cy + inner);
+
+            // 予定ありの区間を1つの形状にまとめる(区間の数によらず、1回で描画する)
+            mBusyPath.rewind();
+            for (int i = 0; i < geometry.getBusyCount(); i++) {
+                final float startAngle = geometry.getBusyStartAngle(i);
+                final float sweepAngle = geometry.getBusySweepAngle(i);
+                mBusyPath.arcTo(mUpperSideOval, startAngle, sweepAngle, true);
+                mBusyPath.arcTo(mLowerSideOval, startAngle + sweepAngle, -sweepAngle, false);
+                mBusyPath.close();
             }
-            drawCalendarEventsFrame(canvas);
+
+            // 使われなくなったカレンダーの色の描画スタイルを破棄する
+            mRenderResources.retainEventFillPaints(geometry.getStore());
         }
 
         /**
          * カレンダーの予定を描画する。
          *
          * @param canvas 描画に利用するキャンバス
-         * @param event  カレンダーの予定
-         */
-        private void drawCalendarEvent(final Canvas canvas, final CalendarEvent event) {
-            // カレンダーの予定の枠(円弧)の角度を設定する
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTimeInMillis(event.getDtStart());
-            final int startDay = calendar.get(Calendar.DAY_OF_MONTH);
-            final int startHour = calendar.get(Calendar.HOUR_OF_DAY);
-            final int startMinute = calendar.get(Calendar.MINUTE);
-            calendar.setTimeInMillis(event.getDtEnd());
-            final int endDay = calendar.get(Calendar.DAY_OF_MONTH);
-            final int endHour = (startDay == endDay) ? calendar.get(Calendar.HOUR_OF_DAY)
-                    : calendar.get(Calendar.HOUR_OF_DAY) + (24 * (endDay - startDay));
-            final int endMinutes = calendar.get(Calendar.MINUTE);
-            final int topAngle = -90;
-            final int startAngle = topAngle + (int) ((startHour + (startMinute / 60f)) / 12f * 360);
-            final int endAngle = topAngle + (int) ((endHour + (endMinutes / 60f)) / 12f * 360);
-            final int sweepAngle = endAngle - startAngle;
+         * @param index  カレンダーの予定の番号
+         */
+        private void drawCalendarEvent(final Canvas canvas, final int index) {
+            // カレンダーの予定の枠(円弧)の角度と、レーンの円を取得する
+            final EventRingGeometry geometry = mEventRingGeometry;
+            final float startAngle = geometry.getStartAngle(index);
+            final float sweepAngle = geometry.getSweepAngle(index);
+            RectF upperSideOval = mUpperSideOval;
+            RectF lowerSideOval = mLowerSideOval;
+            if (!geometry.isFullWidth(index)) {
+                upperSideOval = setLaneOval(mLaneUpperSideOval, geometry.getOuterRadius(index));
+                lowerSideOval = setLaneOval(mLaneLowerSideOval, geometry.getInnerRadius(index));
+            }
 
             // カレンダーの予定の枠(上側)を描画する
-            Paint upperSidePaint = new Paint();
-            upperSidePaint.setAntiAlias(true);
-            upperSidePaint.setColor(event.getCalendarColor());
-            upperSidePaint.setStyle(Paint.Style.FILL);
-            final float upperSideWidth = mWatchFaceWidth - 70;
-            final float upperSideLeftTop = (mWatchFaceWidth - upperSideWidth) / 2;
-            final float upperSideRightBottom = upperSideLeftTop + upperSideWidth;
-            RectF upperSideOval = new RectF(upperSideLeftTop, upperSideLeftTop,
-                    upperSideRightBottom, upperSideRightBottom);
-            canvas.drawArc(upperSideOval, startAngle, sweepAngle, true, upperSidePaint);
+            canvas.drawArc(upperSideOval, startAngle, sweepAngle, true,
+                    mRenderResources.getEventFillPaint(mCalendarEvents.getColor(index)));
 
             // カレンダーの予定の枠(下側)を描画する
-            Paint lowerSidePaint = new Paint();
-            lowerSidePaint.setAntiAlias(true);
-            lowerSidePaint.setColor(Color.WHITE);
-            lowerSidePaint.setStyle(Paint.Style.FILL_AND_STROKE);
-            lowerSidePaint.setStrokeWidth(1.f);
-            final float lowerSideWidth = mWatchFaceWidth - 100;
-            final float lowerSideLeftTop = (mWatchFaceWidth - lowerSideWidth) / 2;
-            final float lowerSideRightBottom = lowerSideLeftTop + lowerSideWidth;
-            RectF lowerSideOval = new RectF(lowerSideLeftTop, lowerSideLeftTop,
-                    lowerSideRightBottom, lowerSideRightBottom);
-            canvas.drawArc(lowerSideOval, startAngle, sweepAngle, true, lowerSidePaint);
+            canvas.drawArc(lowerSideOval, startAngle, sweepAngle, true,
+                    mRenderResources.getEventLowerSidePaint());
 
             // カレンダーの予定の枠(左側・右側)を描画する
-            Paint sidePaint = new Paint();
-            sidePaint.setAntiAlias(true);
-            sidePaint.setColor(Color.LTGRAY);
-            sidePaint.setStyle(Paint.Style.STROKE);
-            sidePaint.setStrokeWidth(2.f);
-            float startTimeRot = (float) ((startHour + (startMinute / 60f)) / 6f * Math.PI);
-            final float innerRadius = lowerSideWidth / 2;
-            final float outerRadius = upperSideWidth / 2;
-            canvas.drawLine(
-                    mCenterX + (float) Math.sin(startTimeRot) * innerRadius,
-                    mCenterY + (float) -Math.cos(startTimeRot) * innerRadius,
-                    mCenterX + (float) Math.sin(startTimeRot) * outerRadius,
-                    mCenterY + (float) -Math.cos(startTimeRot) * outerRadius,
-                    sidePaint);
-            final float endTimeRot = (float) ((endHour + (endMinutes / 60f)) / 6f * Math.PI);
-            canvas.drawLine(
-                    mCenterX + (float) Math.sin(endTimeRot) * innerRadius,
-                    mCenterY + (float) -Math.cos(endTimeRot) * innerRadius,
-                    mCenterX + (float) Math.sin(endTimeRot) * outerRadius,
-                    mCenterY + (float) -Math.cos(endTimeRot) * outerRadius,
-                    sidePaint);
-
-            // カレンダーの予定のタイトルを描画する
-            Paint titlePaint = new Paint();
-            titlePaint.setAntiAlias(true);
-            titlePaint.setColor(Color.BLACK);
-            titlePaint.setTextSize(11);
-            titlePaint.setTextAlign(Paint.Align.CENTER);
-            Path titlePath = new Path();
-            titlePath.addArc(upperSideOval, startAngle, sweepAngle);
-            canvas.drawTextOnPath(event.getTitle(), titlePath, 0, 12, titlePaint);
+            canvas.drawLines(mEventRingGeometry.getSeparatorPoints(),
+                    index * EventRingGeometry.SEPARATOR_POINTS_PER_EVENT,
+                    EventRingGeometry.SEPARATOR_POINTS_PER_EVENT,
+                    mRenderResources.getEventSidePaint());
+
+            // カレンダーの予定のタイトルを描画する(円弧に収まらない場合は描画しない)
+            final String title = mTitleLayoutCache.getText(index);
+            if ((title != null) && hasFeature(RenderProfile.FEATURE_EVENT_TITLES)) {
+                canvas.drawTextOnPath(title, mTitleLayoutCache.getPath(index), 0,
+                        TitleLayoutCache.BASELINE_OFFSET, mRenderResources.getEventTitlePaint());
+            }
+        }
+
+        /**
+         * レーンの円を設定する。
+         *
+         * @param laneOval 設定する円
+         * @param radius   レーンの半径
+         * @return 設定した円
+         */
+        private RectF setLaneOval(final RectF laneOval, final float radius) {
+            laneOval.set(mEventRingGeometry.getCenterX() - radius,
+                    mEventRingGeometry.getCenterY() - radius,
+                    mEventRingGeometry.getCenterX() + radius,
+                    mEventRingGeometry.getCenterY() + radius);
+            return laneOval;
         }
 
         /**
@@ -704,130 +874,105 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
          * @param canvas 描画に利用するキャンバス
          */
         private void drawCalendarEventsFrame(final Canvas canvas) {
-            // 描画スタイルを設定する
-            Paint paint = new Paint();
-            paint.setAntiAlias(true);
-            paint.setColor(Color.LTGRAY);
-            paint.setStyle(Paint.Style.STROKE);
-            paint.setStrokeWidth(2.f);
-
             // カレンダーの予定の枠(円)を描画する
+            final Paint paint = mRenderResources.getEventSidePaint();
             canvas.drawCircle(mCenterX, mCenterY, mCenterX - 35, paint);
             canvas.drawCircle(mCenterX, mCenterY, mCenterX - 50, paint);
         }
 
         /**
-         * カレンダーの次の予定を描画する。
+         * カレンダーの次の予定(現在行われている予定、なければ次に始まる予定)を設定する。
+         * 次の予定、または予定が始まっているかどうかが変わった場合は、メッセージを描画し直す。
          *
-         * @param canvas 描画に利用するキャンバス
+         * @param currentTimeMillis 現在時刻
          */
-        private void drawNextCalendarEvent(final Canvas canvas) {
-            // カレンダーの次の予定を取得する
-            CalendarEvent event = null;
-            for (CalendarEvent e : mCalendarEvents) {
-                // 終日の予定はウォッチフェイスに描画しない
-                if (e.isAllDay()) {
-                    continue;
-                }
-
-                event = e;
-            }
-
-            // カレンダーの次の予定を描画する。
-            if (event != null) {
-                // 描画スタイルを設定する
-                Paint paint = new Paint();
-                paint.setAntiAlias(true);
-                paint.setColor(Color.GRAY);
-                paint.setStyle(Paint.Style.FILL);
-
-                Calendar startTime = Calendar.getInstance();
-                Calendar endTime = Calendar.getInstance();
-                Calendar currentTime = Calendar.getInstance();
-                startTime.setTimeInMillis(event.getDtStart());
-                endTime.setTimeInMillis(event.getDtEnd());
-                if (isInDebugMode) {
-                    currentTime.set(mTime.year, mTime.month, mTime.monthDay, mTime.hour,
-                            mTime.minute, mTime.second);
-                }
+        private void updateNextCalendarEvent(final long currentTimeMillis) {
+            // (終日の予定は索引に含まれない)
+            final int index = mCalendarEventTimeline.findCurrentOrNext(currentTimeMillis);
+            final boolean started =
+                    (index >= 0) && (mCalendarEvents.getStart(index) <= currentTimeMillis);
+            final Locale locale = Locale.getDefault();
+            if ((index == mNextEventIndex) && (started == mNextEventStarted)
+                    && (mCalendarEvents == mNextEventStore) && (locale == mNextEventLocale)) {
+                return;
+            }
+            mNextEventIndex = index;
+            mNextEventStarted = started;
+            mNextEventStore = mCalendarEvents;
+            mNextEventLocale = locale;
 
-                if (Locale.getDefault().equals(Locale.JAPAN)) {
-                    // 日本の場合(日本語)
-                    drawNextEventMessage(canvas, event, startTime, currentTime, paint, true);
-                    drawNextEventTime(canvas, startTime, endTime, currentTime, paint, false);
-                } else {
-                    // 日本以外の場合(英語)
-                    drawNextEventTime(canvas, startTime, endTime, currentTime, paint, true);
-                    drawNextEventMessage(canvas, event, startTime, currentTime, paint, false);
-                }
+            // メッセージを設定する
+            // (日本の場合はメッセージを上段に、日本以外の場合は残り時間を上段に描画する)
+            mNextEventMessageUpperSide = Locale.JAPAN.equals(locale);
+            if (index < 0) {
+                mNextEventMessage = null;
+            } else if (!started) {
+                mNextEventMessage = getString(R.string.next_schedule_title_start,
+                        mCalendarEvents.getTitle(index));
+            } else {
+                mNextEventMessage = getString(R.string.next_schedule_title_end,
+                        mCalendarEvents.getTitle(index));
             }
+            mEventLayer.invalidate();
         }
 
         /**
          * カレンダーの次の予定のメッセージを描画する。
          *
-         * @param canvas      描画に利用するキャンバス
-         * @param event       カレンダーの次の予定
-         * @param startTime   カレンダーの次の予定の開始時刻
-         * @param currentTime 現在時刻
-         * @param paint       描画スタイル
-         * @param isUpperSide 上段に描画するかどうか
-         */
-        private void drawNextEventMessage(final Canvas canvas, final CalendarEvent event,
-                final Calendar startTime, final Calendar currentTime, final Paint paint,
-                final boolean isUpperSide) {
-            // メッセージを設定する
-            String text;
-            if (currentTime.before(startTime)) {
-                text = getString(R.string.next_schedule_title_start, event.getTitle());
-            } else {
-                text = getString(R.string.next_schedule_title_end, event.getTitle());
+         * @param canvas 描画に利用するキャンバス
+         */
+        private void drawNextEventMessage(final Canvas canvas) {
+            if (mNextEventMessage == null) {
+                return;
             }
 
             // メッセージの座標を設定する
+            final boolean isUpperSide = mNextEventMessageUpperSide;
             final int height = (int) (14 * 1.5f);
             int x = (int) mCenterX;
             int y = isUpperSide ? (int) mCenterY - 70 : (int) mCenterY - 70 + height;
 
-            // メッセージの描画スタイルを設定する
-            paint.setTextSize(12);
-            paint.setTextAlign(Paint.Align.CENTER);
-
             // メッセージを描画する
-            canvas.drawText(text, x, y, paint);
+            canvas.drawText(mNextEventMessage, x, y, mRenderResources.getNextEventMessagePaint());
         }
 
         /**
          * カレンダーの次の予定の残り時間を描画する。
          *
-         * @param canvas      描画に利用するキャンバス
-         * @param startTime   カレンダーの次の予定の開始時刻
-         * @param endTime     カレンダーの次の予定の終了時刻
-         * @param currentTime 現在時刻
-         * @param paint       描画スタイル
-         * @param isUpperSide 上段に描画するかどうか
-         */
-        private void drawNextEventTime(final Canvas canvas, final Calendar startTime,
-                final Calendar endTime, final Calendar currentTime, final Paint paint,
-                final boolean isUpperSide) {
-            // 残り時間を設定する
-            Calendar time = Calendar.getInstance();
-            time.setTimeInMillis((currentTime.before(startTime) ? startTime.getTimeInMillis()
-                    : endTime.getTimeInMillis()) - currentTime.getTimeInMillis());
-
-            // 残り時間の描画スタイルを設定する
-            paint.setTextSize(18);
-            paint.setTextAlign(Paint.Align.CENTER);
-
-            // 残り時間を描画する
-            String text = String.format("%02d:%02d:%02d",
-                    TimeUnit.MILLISECONDS.toHours(time.getTimeInMillis()),
-                    time.get(Calendar.MINUTE) == 59 ? 0 : time.get(Calendar.MINUTE) + 1,
-                    time.get(Calendar.SECOND) == 59 ? 0 : time.get(Calendar.SECOND) + 1);
+         * @param canvas            描画に利用するキャンバス
+         * @param currentTimeMillis 現在時刻
+         */
+        private void drawNextEventTime(final Canvas canvas, final long currentTimeMillis) {
+            final long remaining = getCountdownRemaining(currentTimeMillis);
+            if (remaining == RedrawScheduler.NO_COUNTDOWN) {
+                return;
+            }
+
+            // 残り時間(秒単位に切り上げる)を設定する
+            final int length = mCountdownFormatter.format(remaining);
+
+            // 残り時間を描画する(描画済みの数字を転写する)
+            final boolean isUpperSide = !mNextEventMessageUpperSide;
             final float height = (int) (14 * 1.5f);
             final int x = (int) mCenterX;
             final int y = isUpperSide ? (int) mCenterX - 70 : (int) (mCenterX - 70 + height);
-            canvas.drawText(text, x, y, paint);
+            mCountdownGlyphs.draw(canvas, mCountdownFormatter.getBuffer(), 0, length, x, y,
+                    mRenderResources.getNextEventTimePaint());
+        }
+
+        /**
+         * カレンダーの次の予定の残り時間(始まっていない場合は開始まで、始まっている場合は終了まで)を
+         * 取得する。
+         *
+         * @param currentTimeMillis 現在時刻
+         * @return 残り時間(ミリ秒、次の予定がない場合は{@link RedrawScheduler#NO_COUNTDOWN})
+         */
+        private long getCountdownRemaining(final long currentTimeMillis) {
+            if (mNextEventIndex < 0) {
+                return RedrawScheduler.NO_COUNTDOWN;
+            }
+            return (!mNextEventStarted ? mCalendarEvents.getStart(mNextEventIndex)
+                    : mCalendarEvents.getEnd(mNextEventIndex)) - currentTimeMillis;
         }
 
         /**
@@ -845,90 +990,74 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
          * @param canvas 描画に利用するキャンバス
          */
         private void drawCalendar(final Canvas canvas) {
+            // 日付・曜日の内容は、日付・ロケール・タイムゾーンが変わった時だけ作り直す
+            final DateBoxCache dateBox = mDateBoxCache;
+            dateBox.update(mNow, mWatchFaceWidth, mWatchFaceHeight);
+
             // 日付・曜日の枠を描画する
-            Paint paint = new Paint();
-            paint.setAntiAlias(true); // グラフィックの描画を滑らかにする
-            paint.setStyle(Paint.Style.STROKE); // 線のスタイル
-            paint.setStrokeWidth(1.f); // 線の太さ
-            paint.setColor(Color.LTGRAY); // 色の設定
-            final int dowWidth = 40; // 曜日の枠の幅
-            final int dateWidth = 30; // 日付の枠の幅
-            final int height = 20; // 日付・曜日の枠の高さ
-            final int dowX = mWatchFaceWidth - dowWidth - 85; // 曜日のX軸の座標
-            final int dateX = dowX + dowWidth; // 日付のX軸の座標
-            final int y = (int) (mCenterY - (height / 2f)); // 日付・曜日のY軸の座標
+            final int dowWidth = DateBoxCache.DAY_OF_WEEK_WIDTH; // 曜日の枠の幅
+            final int dateWidth = DateBoxCache.DATE_WIDTH; // 日付の枠の幅
+            final int height = DateBoxCache.HEIGHT; // 日付・曜日の枠の高さ
+            final int dowX = dateBox.getDayOfWeekX(); // 曜日のX軸の座標
+            final int dateX = dateBox.getDateX(); // 日付のX軸の座標
+            final int y = dateBox.getY(); // 日付・曜日のY軸の座標
+            Paint paint = mRenderResources.getCalendarFramePaint();
             canvas.drawRect(dowX, y, dowX + dowWidth, y + height, paint);
             canvas.drawRect(dateX, y, dateX + dateWidth, y + height, paint);
-            paint.setColor(Color.DKGRAY);
-            paint.setStrokeWidth(1.0f);
+            paint = mRenderResources.getCalendarOuterFramePaint();
             canvas.drawRect(dowX, y, dowX + dowWidth + dateWidth, y + height, paint); // 外枠
 
             // 日付・曜日の文字列を描画する
-            Calendar calendar = Calendar.getInstance();
-            SimpleDateFormat sdf = new SimpleDateFormat("E");
-            final String dow = sdf.format(calendar.getTime());
-            sdf = new SimpleDateFormat("dd");
-            final String date = sdf.format(calendar.getTime());
-            final int textSize = 16;
-            paint.setTextSize(textSize);
-            paint.setTextAlign(Paint.Align.CENTER);
-            paint.setColor(Color.BLACK);
-            paint.setStyle(Paint.Style.FILL);
-            paint.setStrokeWidth(1.0f);
-            paint.setTypeface(Typeface.SERIF);
-            canvas.drawText(date, dateX + (dateWidth / 2), y + textSize, paint); // 日付の描画
-            if (calendar.get(Calendar.DAY_OF_WEEK) == Calendar.SATURDAY) {
-                paint.setColor(Color.BLUE);
-            } else if (calendar.get(Calendar.DAY_OF_WEEK) == Calendar.SUNDAY) {
-                paint.setColor(Color.RED);
-            }
-            canvas.drawText(dow, dowX + (dowWidth / 2), y + textSize, paint); // 曜日の描画
-        }
-
-        /**
-         * ウォッチフェイスの短針、長針、秒針を描画する
+            final int textSize = DateBoxCache.TEXT_SIZE;
+            paint = mRenderResources.getCalendarDatePaint();
+            canvas.drawText(dateBox.getDate(), dateX + (dateWidth / 2), y + textSize,
+                    paint); // 日付の描画
+            paint = mRenderResources.getCalendarDayOfWeekPaint();
+            paint.setColor(dateBox.getDayOfWeekColor());
+            canvas.drawText(dateBox.getDayOfWeek(), dowX + (dowWidth / 2), y + textSize,
+                    paint); // 曜日の描画
+        }
+
+        /**
+         * ウォッチフェイスの短針、長針を描画する
          *
          * @param canvas 描画に利用するキャンバス
          */
-        private void drawWatchHands(final Canvas canvas) {
-            // 針の色を設定する
-            final int handsColor = !isInAmbientMode() ? Color.BLACK : Color.GRAY;
-            mHourPaint.setColor(handsColor);
-            mMinutePaint.setColor(handsColor);
-
-            final int minutes = mTime.minute;
+        private void drawHourAndMinuteHands(final Canvas canvas) {
+            final int minutes = mNow.getMinute();
 
             // 短針を描画する
-            final float hrRot = (mTime.hour + (minutes / 60f)) / 6f * (float) Math.PI;
+            final int hrRot = (mNow.getHour() * 60) + minutes;
             final float hrLength = mCenterX - 58;
-            final float hrX = (float) Math.sin(hrRot) * hrLength;
-            final float hrY = (float) -Math.cos(hrRot) * hrLength;
-            canvas.drawLine(mCenterX, mCenterY, mCenterX + hrX, mCenterY + hrY, mHourPaint);
+            final float hrX = TrigTable.sinDialMinute(hrRot) * hrLength;
+            final float hrY = -TrigTable.cosDialMinute(hrRot) * hrLength;
+            canvas.drawLine(mCenterX, mCenterY, mCenterX + hrX, mCenterY + hrY,
+                    mRenderResources.getHourPaint());
 
             // 長針を描画する
-            final float minRot = minutes / 30f * (float) Math.PI;
             final float minLength = mCenterX - 5;
-            final float minX = (float) Math.sin(minRot) * minLength;
-            final float minY = (float) -Math.cos(minRot) * minLength;
-            canvas.drawLine(mCenterX, mCenterY, mCenterX + minX, mCenterY + minY, mMinutePaint);
+            final float minX = TrigTable.sinTick(minutes) * minLength;
+            final float minY = -TrigTable.cosTick(minutes) * minLength;
+            canvas.drawLine(mCenterX, mCenterY, mCenterX + minX, mCenterY + minY,
+                    mRenderResources.getMinutePaint());
+        }
 
+        /**
+         * ウォッチフェイスの秒針を描画する
+         *
+         * @param canvas 描画に利用するキャンバス
+         */
+        private void drawSecondHand(final Canvas canvas) {
             // 秒針を描画する
-            final float secRot = mTime.second / 30f * (float) Math.PI;
             final float secLength = mCenterX - 42;
-            if (!isInAmbientMode()) {
-                // 秒針を描画する
-                final float secX = (float) Math.sin(secRot) * secLength;
-                final float secY = (float) -Math.cos(secRot) * secLength;
-                canvas.drawLine(mCenterX, mCenterY, mCenterX + secX, mCenterY + secY, mSecondPaint);
-
-                // 秒針の先端部分を描画する
-                Paint paint = new Paint();
-                paint.setAntiAlias(true);
-                paint.setColor(Color.RED);
-                paint.setStrokeWidth(1.f);
-                paint.setStyle(Paint.Style.FILL_AND_STROKE);
-                canvas.drawCircle(mCenterX + secX, mCenterY + secY, 8, paint);
-            }
+            final float secX = TrigTable.sinTick(mNow.getSecond()) * secLength;
+            final float secY = -TrigTable.cosTick(mNow.getSecond()) * secLength;
+            canvas.drawLine(mCenterX, mCenterY, mCenterX + secX, mCenterY + secY,
+                    mRenderResources.getSecondPaint());
+
+            // 秒針の先端部分を描画する
+            canvas.drawCircle(mCenterX + secX, mCenterY + secY, 8,
+                    mRenderResources.getSecondTipPaint());
         }
 
         //------------------------------------------------------------------------------------------
@@ -943,64 +1072,75 @@ public class CalendarWatchFaceService extends CanvasWatchFaceService {
          * デバッグモード用のダミーデータを設定する。
          */
         private void setDummyDataForDebugMode() {
-            mTime.set(36, 8, 10, 27, 4, 2015);
             mBatteryLevel = 29;
         }
 
         /**
-         * Moto 360用の下側にある環境光センサーの黒い帯をエミュレートする。
+         * デバッグモード用の時計(2015-05-27 10:08:36で止まった時計)を作成する。
          *
-         * @param canvas 描画に利用するキャンバス
+         * @return 時計
          */
-        private void drawMoto360ForDebugMode(final Canvas canvas) {
-            Paint paint = new Paint();
-            paint.setColor(Color.BLACK);
-            canvas.drawRect(0, 290, 320, 320, paint);
+        private Clock createDebugClock() {
+            final long time = getDebugTimeMillis(10, 8, 36);
+            return new Clock() {
+                @Override
+                public long currentTimeMillis() {
+                    return time;
+                }
+            };
+        }
+
+        /**
+         * デバッグモード用の日(2015-05-27)の時刻を取得する。
+         *
+         * @param hour   時
+         * @param minute 分
+         * @param second 秒
+         * @return 時刻
+         */
+        private long getDebugTimeMillis(final int hour, final int minute, final int second) {
+            return CalendarUtils.toUtcMillis(CalendarUtils.toEpochDay(2015, 5, 27),
+                    TimeUnit.HOURS.toMillis(hour) + TimeUnit.MINUTES.toMillis(minute)
+                            + TimeUnit.SECONDS.toMillis(second), mNow.getTimeZone());
         }
 
         /**
          * デバッグ用のダミーのカレンダーの予定を取得する。
          */
         private void setDummyCalendarEventsForDebugMode() {
-            mCalendarEvents.clear();
-
-            Calendar calendar = Calendar.getInstance();
+            List<CalendarEvent> events = new ArrayList<>();
 
             // 1番目の予定
             CalendarEvent event1 = new CalendarEvent();
             event1.setTitle("打ち合わせ");
             //event1.setTitle("Meeting");
-            calendar.set(2015, 4, 27, 11, 0, 0);
-            event1.setDtStart(calendar.getTimeInMillis());
-            calendar.set(2015, 4, 27, 12, 0, 0);
-            event1.setDtEnd(calendar.getTimeInMillis());
+            event1.setDtStart(getDebugTimeMillis(11, 0, 0));
+            event1.setDtEnd(getDebugTimeMillis(12, 0, 0));
             event1.setTimeZone(TimeZone.getTimeZone("Asia/Tokyo").getID());
             event1.setCalendarColor(Color.argb(0xff, 0x42, 0xd6, 0x92)); // 仕事
-            mCalendarEvents.add(event1);
+            events.add(event1);
 
             // 2番目の予定
             CalendarEvent event2 = new CalendarEvent();
             event2.setTitle("A社へ訪問");
             //event2.setTitle("Visit A");
-            calendar.set(2015, 4, 27, 13, 0, 0);
-            event2.setDtStart(calendar.getTimeInMillis());
-            calendar.set(2015, 4, 27, 16, 0, 0);
-            event2.setDtEnd(calendar.getTimeInMillis());
+            event2.setDtStart(getDebugTimeMillis(13, 0, 0));
+            event2.setDtEnd(getDebugTimeMillis(16, 0, 0));
             event2.setTimeZone(TimeZone.getTimeZone("Asia/Tokyo").getID());
             event2.setCalendarColor(Color.argb(0xff, 0x42, 0xd6, 0x92)); // 仕事
-            mCalendarEvents.add(event2);
+            events.add(event2);
 
             // 3番目の予定
             CalendarEvent event3 = new CalendarEvent();
             event3.setTitle("Bさんと食事");
             //event3.setTitle("Dinner w/ B");
-            calendar.set(2015, 4, 27, 19, 0, 0);
-            event3.setDtStart(calendar.getTimeInMillis());
-            calendar.set(2015, 4, 27, 21, 0, 0);
-            event3.setDtEnd(calendar.getTimeInMillis());
+            event3.setDtStart(getDebugTimeMillis(19, 0, 0));
+            event3.setDtEnd(getDebugTimeMillis(21, 0, 0));
             event3.setTimeZone(TimeZone.getTimeZone("Asia/Tokyo").getID());
             event3.setCalendarColor(Color.argb(0xff, 0x9f, 0xc6, 0xe7)); // プライベート
-            mCalendarEvents.add(event3);
+            events.add(event3);
+
+            mCalendarEvents = CalendarEventStore.from(events);
         }
 
         //------------------------------------------------------------------------------------------
@@ -0,0 +1,31 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+/**
+ * 現在時刻を取得するインターフェース。
+ *
+ * 描画処理は現在時刻をこのインターフェースから取得するため、
+ * 固定の時刻を返す実装に差し替えれば、同じ時刻の描画を再現できる。(デバッグモード、検証用)
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public interface Clock {
+
+    /** 端末の時刻 */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * 現在時刻を取得する。
+     *
+     * @return 1970-01-01 00:00(UTC)からのミリ秒
+     */
+    long currentTimeMillis();
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1回の描画で使う現在時刻を保持するクラス。
+ *
+ * 描画の最初に{@link #update(Clock)}で現在時刻を1回だけ取得し、時・分・秒・日付・曜日・
+ * タイムゾーンのオフセット({@link TimeZoneCache}で次の切り替わりまで保持する)に分解しておく。描画の各処理は同じ値を参照するため、
+ * 1回の描画の途中で時刻がずれることがない。
+ * 更新してもオブジェクトを作成しない。(日付は日が変わった時だけ計算し直す)
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class ClockSnapshot {
+
+    /** 1秒のミリ秒 */
+    private static final long SECOND_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    /** 1日のミリ秒 */
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /** タイムゾーン */
+    private TimeZoneCache.Zone mZone;
+
+    /** 現在時刻(1970-01-01 00:00(UTC)からのミリ秒) */
+    private long mEpochMillis;
+
+    /** タイムゾーンのオフセット(ミリ秒) */
+    private int mOffsetMillis;
+
+    /** ローカル日付(1970-01-01からの日数) */
+    private long mEpochDay = Long.MIN_VALUE;
+
+    /** 時(0 - 23) */
+    private int mHour;
+
+    /** 分(0 - 59) */
+    private int mMinute;
+
+    /** 秒(0 - 59) */
+    private int mSecond;
+
+    /** 年 */
+    private int mYear;
+
+    /** 月(1 - 12) */
+    private int mMonth;
+
+    /** 日(1 - 31) */
+    private int mDayOfMonth;
+
+    /** 曜日(0:日曜日 - 6:土曜日) */
+    private int mDayOfWeek;
+
+    /**
+     * コンストラクター
+     *
+     * @param zone タイムゾーン
+     */
+    public ClockSnapshot(final TimeZoneCache.Zone zone) {
+        mZone = zone;
+    }
+
+    /**
+     * タイムゾーンを設定する。(タイムゾーンが変わった場合に使う)
+     *
+     * @param zone タイムゾーン
+     */
+    public void setZone(final TimeZoneCache.Zone zone) {
+        mZone = zone;
+        mEpochDay = Long.MIN_VALUE;
+    }
+
+    /**
+     * 現在時刻を取得して、分解する。
+     *
+     * @param clock 時計
+     */
+    public void update(final Clock clock) {
+        set(clock.currentTimeMillis());
+    }
+
+    /**
+     * 時刻を設定して、分解する。
+     *
+     * @param epochMillis 1970-01-01 00:00(UTC)からのミリ秒
+     */
+    public void set(final long epochMillis) {
+        mEpochMillis = epochMillis;
+        mOffsetMillis = mZone.getOffset(epochMillis);
+        final long localMillis = epochMillis + mOffsetMillis;
+        final long epochDay = CalendarUtils.floorDiv(localMillis, DAY_MILLIS);
+        final int secondOfDay = (int) ((localMillis - (epochDay * DAY_MILLIS)) / SECOND_MILLIS);
+        mHour = secondOfDay / 3600;
+        mMinute = (secondOfDay / 60) % 60;
+        mSecond = secondOfDay % 60;
+
+        // 日付・曜日は、日が変わった時だけ計算し直す
+        if (epochDay != mEpochDay) {
+            mEpochDay = epochDay;
+            final long month = CalendarUtils.getMonthIndex(epochDay);
+            mYear = (int) CalendarUtils.floorDiv(month, 12);
+            mMonth = (int) CalendarUtils.floorMod(month, 12) + 1;
+            mDayOfMonth = (int) (epochDay - CalendarUtils.toEpochDay(mYear, mMonth, 1)) + 1;
+            mDayOfWeek = CalendarUtils.getWeekday(epochDay);
+        }
+    }
+
+    /**
+     * タイムゾーンを取得する。
+     *
+     * @return タイムゾーン
+     */
+    public TimeZoneCache.Zone getZone() {
+        return mZone;
+    }
+
+    /**
+     * タイムゾーンを取得する。
+     *
+     * @return タイムゾーン
+     */
+    public TimeZone getTimeZone() {
+        return mZone.getTimeZone();
+    }
+
+    /**
+     * 現在時刻を取得する。
+     *
+     * @return 1970-01-01 00:00(UTC)からのミリ秒
+     */
+    public long getEpochMillis() {
+        return mEpochMillis;
+    }
+
+    /**
+     * タイムゾーンのオフセットを取得する。
+     *
+     * @return オフセット(ミリ秒)
+     */
+    public int getOffsetMillis() {
+        return mOffsetMillis;
+    }
+
+    /**
+     * ローカル時刻を取得する。
+     *
+     * @return 1970-01-01 00:00(ローカル時刻)からのミリ秒
+     */
+    public long getLocalMillis() {
+        return mEpochMillis + mOffsetMillis;
+    }
+
+    /**
+     * ローカル日付を取得する。
+     *
+     * @return 1970-01-01からの日数
+     */
+    public long getEpochDay() {
+        return mEpochDay;
+    }
+
+    /**
+     * 時を取得する。
+     *
+     * @return 時(0 - 23)
+     */
+    public int getHour() {
+        return mHour;
+    }
+
+    /**
+     * 分を取得する。
+     *
+     * @return 分(0 - 59)
+     */
+    public int getMinute() {
+        return mMinute;
+    }
+
+    /**
+     * 秒を取得する。
+     *
+     * @return 秒(0 - 59)
+     */
+    public int getSecond() {
+        return mSecond;
+    }
+
+    /**
+     * 年を取得する。
+     *
+     * @return 年
+     */
+    public int getYear() {
+        return mYear;
+    }
+
+    /**
+     * 月を取得する。
+     *
+     * @return 月(1 - 12)
+     */
+    public int getMonth() {
+        return mMonth;
+    }
+
+    /**
+     * 日を取得する。
+     *
+     * @return 日(1 - 31)
+     */
+    public int getDayOfMonth() {
+        return mDayOfMonth;
+    }
+
+    /**
+     * 曜日を取得する。
+     *
+     * @return 曜日(0:日曜日 - 6:土曜日)
+     */
+    public int getDayOfWeek() {
+        return mDayOfWeek;
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 残り時間を「時:分:秒」(例: 01:05:09)の形式の文字列に変換するクラス。
+ *
+ * 毎秒の描画でオブジェクトを生成しないように、変換結果は使い回す文字の配列に書き込む。
+ * 残り時間は秒単位に切り上げる。(残り0.5秒の場合は00:00:01、ちょうど1分の場合は00:01:00)
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class CountdownFormatter {
+
+    /** 1秒のミリ秒 */
+    private static final long SECOND_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    /** 時の最大桁数 */
+    private static final int MAX_HOUR_DIGITS = 5;
+
+    /** 変換結果 */
+    private final char[] mBuffer = new char[MAX_HOUR_DIGITS + 6];
+
+    /**
+     * 残り時間を変換する。
+     *
+     * @param remainingMillis 残り時間(ミリ秒、負の場合は0として扱う)
+     * @return 変換結果の文字数
+     */
+    public int format(final long remainingMillis) {
+        final long totalSeconds = (remainingMillis <= 0) ? 0
+                : ((remainingMillis - 1) / SECOND_MILLIS) + 1;
+        final long hours = Math.min(totalSeconds / 3600, 99999);
+        final int minutes = (int) ((totalSeconds / 60) % 60);
+        final int seconds = (int) (totalSeconds % 60);
+
+        // 時(2桁以上)を書き込む
+        int length = 0;
+        int digits = 2;
+        for (long h = hours; h >= 100; h /= 10) {
+            digits++;
+        }
+        long h = hours;
+        for (int i = digits - 1; i >= 0; i--) {
+            mBuffer[i] = (char) ('0' + (h % 10));
+            h /= 10;
+        }
+        length += digits;
+
+        // 分・秒を書き込む
+        mBuffer[length++] = ':';
+        mBuffer[length++] = (char) ('0' + (minutes / 10));
+        mBuffer[length++] = (char) ('0' + (minutes % 10));
+        mBuffer[length++] = ':';
+        mBuffer[length++] = (char) ('0' + (seconds / 10));
+        mBuffer[length++] = (char) ('0' + (seconds % 10));
+        return length;
+    }
+
+    /**
+     * 変換結果を取得する。(次に変換するまで有効)
+     *
+     * @return 変換結果の文字の配列
+     */
+    public char[] getBuffer() {
+        return mBuffer;
+    }
+}
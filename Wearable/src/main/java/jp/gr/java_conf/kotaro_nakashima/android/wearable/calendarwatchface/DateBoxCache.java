@@ -0,0 +1,194 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import android.graphics.Color;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * 日付・曜日の枠に描画する内容を保持するクラス。
+ *
+ * 日付・曜日の文字列と曜日の色は1日に1回しか変わらないため、日付が変わった時(ローカル時刻の0時)、
+ * ロケールが変わった時、タイムゾーンが変わった時({@link #invalidate()})だけ作り直す。
+ * 枠の位置はウォッチフェイスの大きさが変わった時だけ計算し直す。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class DateBoxCache {
+
+    /** 曜日の枠の幅 */
+    public static final int DAY_OF_WEEK_WIDTH = 40;
+
+    /** 日付の枠の幅 */
+    public static final int DATE_WIDTH = 30;
+
+    /** 日付・曜日の枠の高さ */
+    public static final int HEIGHT = 20;
+
+    /** 日付・曜日の文字の大きさ */
+    public static final int TEXT_SIZE = 16;
+
+    /** 曜日: 日曜日({@link ClockSnapshot#getDayOfWeek()}の値) */
+    private static final int SUNDAY = 0;
+
+    /** 曜日: 土曜日({@link ClockSnapshot#getDayOfWeek()}の値) */
+    private static final int SATURDAY = 6;
+
+    /** 作成した日(ローカル日付、1970-01-01からの日数) */
+    private long mEpochDay = Long.MIN_VALUE;
+
+    /** 作成した時のロケール */
+    private Locale mLocale;
+
+    /** 曜日 */
+    private String mDayOfWeek = "";
+
+    /** 日付 */
+    private String mDate = "";
+
+    /** 曜日の色 */
+    private int mDayOfWeekColor = Color.BLACK;
+
+    /** 計算に使ったウォッチフェイスの幅 */
+    private int mWidth = -1;
+
+    /** 計算に使ったウォッチフェイスの高さ */
+    private int mHeight = -1;
+
+    /** 曜日のX軸の座標 */
+    private int mDayOfWeekX;
+
+    /** 日付のX軸の座標 */
+    private int mDateX;
+
+    /** 日付・曜日のY軸の座標 */
+    private int mY;
+
+    /**
+     * 必要な場合だけ、日付・曜日の内容と枠の位置を作り直す。
+     *
+     * @param now    現在時刻
+     * @param width  ウォッチフェイスの幅
+     * @param height ウォッチフェイスの高さ
+     * @return 作り直した場合はtrue
+     */
+    public boolean update(final ClockSnapshot now, final int width, final int height) {
+        boolean updated = false;
+        if ((now.getEpochDay() != mEpochDay) || (Locale.getDefault() != mLocale)) {
+            rebuild(now);
+            updated = true;
+        }
+        if ((width != mWidth) || (height != mHeight)) {
+            mWidth = width;
+            mHeight = height;
+            mDayOfWeekX = width - DAY_OF_WEEK_WIDTH - 85;
+            mDateX = mDayOfWeekX + DAY_OF_WEEK_WIDTH;
+            mY = (int) ((height / 2f) - (HEIGHT / 2f));
+            updated = true;
+        }
+        return updated;
+    }
+
+    /**
+     * 日付・曜日の内容を無効にする。(タイムゾーンが変わった場合に使う)
+     */
+    public void invalidate() {
+        mEpochDay = Long.MIN_VALUE;
+    }
+
+    /**
+     * 曜日を取得する。
+     *
+     * @return 曜日
+     */
+    public String getDayOfWeek() {
+        return mDayOfWeek;
+    }
+
+    /**
+     * 日付を取得する。
+     *
+     * @return 日付
+     */
+    public String getDate() {
+        return mDate;
+    }
+
+    /**
+     * 曜日の色を取得する。(土曜日は青、日曜日は赤)
+     *
+     * @return 曜日の色
+     */
+    public int getDayOfWeekColor() {
+        return mDayOfWeekColor;
+    }
+
+    /**
+     * 曜日の枠のX軸の座標を取得する。
+     *
+     * @return X軸の座標
+     */
+    public int getDayOfWeekX() {
+        return mDayOfWeekX;
+    }
+
+    /**
+     * 日付の枠のX軸の座標を取得する。
+     *
+     * @return X軸の座標
+     */
+    public int getDateX() {
+        return mDateX;
+    }
+
+    /**
+     * 日付・曜日の枠のY軸の座標を取得する。
+     *
+     * @return Y軸の座標
+     */
+    public int getY() {
+        return mY;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 日付・曜日の内容を作り直す。
+     *
+     * @param now 現在時刻
+     */
+    private void rebuild(final ClockSnapshot now) {
+        final Locale locale = Locale.getDefault();
+        final TimeZone timeZone = now.getTimeZone();
+
+        // 日付・曜日の文字列を設定する
+        final Date date = new Date(now.getEpochMillis());
+        SimpleDateFormat sdf = new SimpleDateFormat("E", locale);
+        sdf.setTimeZone(timeZone);
+        mDayOfWeek = sdf.format(date);
+        sdf = new SimpleDateFormat("dd", locale);
+        sdf.setTimeZone(timeZone);
+        mDate = sdf.format(date);
+
+        // 曜日の色を設定する
+        switch (now.getDayOfWeek()) {
+            case SATURDAY:
+                mDayOfWeekColor = Color.BLUE;
+                break;
+            case SUNDAY:
+                mDayOfWeekColor = Color.RED;
+                break;
+            default:
+                mDayOfWeekColor = Color.BLACK;
+                break;
+        }
+        mEpochDay = now.getEpochDay();
+        mLocale = locale;
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * ウォッチフェイスの文字盤(背景、目盛り、カレンダーの予定の枠)を描画するクラス。
+ *
+ * 文字盤はウォッチフェイスの大きさが変わらない限り同じため、ビットマップへ一度だけ描画しておき、
+ * 以降はビットマップを転写するだけにする。(AmbientModeの文字盤は{@link AmbientRenderer}が描画する)
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class DialLayer {
+
+    /** 描画スタイル */
+    private final RenderResources mResources;
+
+    /** 文字盤のレイヤー */
+    private final CachedLayer mLayer = new CachedLayer();
+
+    /** ビットマップを描画した時のMoto 360モード */
+    private boolean mMoto360 = false;
+
+    /**
+     * コンストラクター
+     *
+     * @param resources 描画スタイル
+     */
+    public DialLayer(final RenderResources resources) {
+        mResources = resources;
+    }
+
+    /**
+     * 文字盤を描画する。ビットマップがない場合や条件が変わった場合は、ビットマップを作り直す。
+     *
+     * @param canvas  描画に利用するキャンバス
+     * @param width   ウォッチフェイスの幅
+     * @param height  ウォッチフェイスの高さ
+     * @param moto360 Moto 360モードの場合はtrue
+     */
+    public void draw(final Canvas canvas, final int width, final int height,
+            final boolean moto360) {
+        if (!mLayer.isValid(width, height) || (mMoto360 != moto360)) {
+            render(mLayer.beginDraw(width, height), width, height, moto360);
+            mLayer.endDraw();
+            mMoto360 = moto360;
+        }
+        mLayer.draw(canvas);
+    }
+
+    /**
+     * ビットマップを破棄する。次に描画する時に作り直す。
+     */
+    public void release() {
+        mLayer.release();
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 文字盤をビットマップに描画する。
+     *
+     * @param canvas  ビットマップのキャンバス
+     * @param width   ウォッチフェイスの幅
+     * @param height  ウォッチフェイスの高さ
+     * @param moto360 Moto 360モードの場合はtrue
+     */
+    private void render(final Canvas canvas, final int width, final int height,
+            final boolean moto360) {
+        final float centerX = width / 2f;
+        final float centerY = height / 2f;
+
+        // 背景を描画する
+        canvas.drawColor(Color.WHITE);
+
+        // 目盛りを描画する
+        for (int tickIndex = 0; tickIndex < 60; tickIndex++) {
+            float innerTickRadius = centerX - 20;
+            float outerTickRadius = centerX - 5;
+            Paint paint = mResources.getTickPaintSmall();
+            if ((tickIndex % 5) == 0) {
+                innerTickRadius = centerX - 35;
+                outerTickRadius = centerX - 5;
+                paint = mResources.getTickPaintBig();
+            }
+
+            final float sin = TrigTable.sinTick(tickIndex);
+            final float cos = -TrigTable.cosTick(tickIndex);
+            canvas.drawLine(
+                    centerX + sin * innerTickRadius,
+                    centerY + cos * innerTickRadius,
+                    centerX + sin * outerTickRadius,
+                    centerY + cos * outerTickRadius,
+                    paint);
+        }
+
+        // カレンダーの予定の枠(円)を描画する
+        final Paint paint = mResources.getEventSidePaint();
+        canvas.drawCircle(centerX, centerY, centerX - 35, paint);
+        canvas.drawCircle(centerX, centerY, centerX - 50, paint);
+
+        // Moto 360用の下側にある環境光センサーの黒い帯をエミュレートする
+        if (moto360) {
+            canvas.drawRect(0, 290, 320, 320, mResources.getFillPaint());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+/**
+ * 描画の入力(バッテリー、カレンダーの予定、タイムゾーン、描画スタイル)のうち、
+ * 前回の描画から変わったものを記録するクラス。
+ *
+ * 放送の受信やライフサイクルのコールバックは、変わった入力の印を付けるだけにする。
+ * 描画処理は描画の前に印を取り出し、印の付いた入力に依存するキャッシュやレイヤーだけを作り直す。
+ * (キャッシュやレイヤーごとに依存する入力を{@link #DATE_BOX}等にまとめる)
+ * AmbientModeの間に付いた印は、次に通常の描画をする時まで残しておく。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class DirtyFlags {
+
+    /** 入力: バッテリーの残量 */
+    public static final int BATTERY = 1;
+
+    /** 入力: カレンダーの予定 */
+    public static final int CALENDAR = 1 << 1;
+
+    /** 入力: タイムゾーン */
+    public static final int TIME_ZONE = 1 << 2;
+
+    /** 入力: 描画スタイル(ミュートモード、描画プロファイル) */
+    public static final int STYLE = 1 << 3;
+
+    /** すべての入力 */
+    public static final int ALL = BATTERY | CALENDAR | TIME_ZONE | STYLE;
+
+    /** 日付・曜日の枠({@link DateBoxCache})が依存する入力 */
+    public static final int DATE_BOX = TIME_ZONE;
+
+    /** カレンダーの予定の円弧の形状({@link EventRingGeometry})が依存する入力 */
+    public static final int EVENT_RING = TIME_ZONE;
+
+    /** カレンダーの予定のレイヤー(予定の円弧、次の予定のメッセージ)が依存する入力 */
+    public static final int EVENT_LAYER = CALENDAR | TIME_ZONE | STYLE;
+
+    /** 1分ごとに変わる内容のレイヤー(バッテリー、日付・曜日、短針・長針)が依存する入力 */
+    public static final int MINUTE_LAYER = BATTERY | TIME_ZONE | STYLE;
+
+    /** 変わった入力 */
+    private int mFlags = ALL;
+
+    /**
+     * 入力が変わったことを記録する。
+     *
+     * @param flags 変わった入力
+     */
+    public void mark(final int flags) {
+        mFlags |= flags;
+    }
+
+    /**
+     * 変わった入力を取り出し、記録を消す。
+     *
+     * @return 変わった入力(印がない場合は0)
+     */
+    public int consume() {
+        final int flags = mFlags;
+        mFlags = 0;
+        return flags;
+    }
+}
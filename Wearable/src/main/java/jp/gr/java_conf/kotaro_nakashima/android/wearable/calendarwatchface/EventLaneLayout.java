@@ -0,0 +1,264 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+/**
+ * 時間が重なるカレンダーの予定を、外周の円弧の中で同心円状のレーンに振り分けるクラス。
+ *
+ * 開始時刻順に並んだ予定({@link CalendarEventTimeline})を先頭から走査し、
+ * 空いているレーンのうち最も外側のレーンに予定を割り当てる。
+ * 時間が重なる予定のまとまり(クラスター)ごとに、使ったレーンの数で円弧の幅を分割する。
+ * (重なる予定がない場合は、円弧の幅をすべて使う)
+ * レーンの数が上限に達した場合は、最も早く空くレーンに重ねて割り当てる。
+ * 個別に描画しない予定(まとめて描画する予定)はレーンに割り当てない。
+ *
+ * 予定が変わった場合は、前回と開始・終了時刻が同じ先頭の予定のクラスターはそのまま使い、
+ * 変わった予定を含むクラスター以降だけを走査し直す。
+ * Androidのクラスに依存しないため、端末がなくても検証できる。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class EventLaneLayout {
+
+    /** レーンの数の上限 */
+    private int mMaxLanes;
+
+    /** 計算した予定の数(並べ替え後の位置の数) */
+    private int mSize = 0;
+
+    /** 開始時刻(並べ替え後の順) */
+    private long[] mStarts = new long[0];
+
+    /** 終了時刻(並べ替え後の順) */
+    private long[] mEnds = new long[0];
+
+    /** レーンに割り当てるかどうか(並べ替え後の順) */
+    private boolean[] mIncluded = new boolean[0];
+
+    /** レーン(並べ替え後の順、0が最も外側) */
+    private int[] mPositionLanes = new int[0];
+
+    /** 属するクラスターの先頭の位置(並べ替え後の順) */
+    private int[] mClusterStarts = new int[0];
+
+    /** 属するクラスターのレーンの数(並べ替え後の順) */
+    private int[] mPositionLaneCounts = new int[0];
+
+    /** レーン(予定の番号順) */
+    private int[] mLanes = new int[0];
+
+    /** 属するクラスターのレーンの数(予定の番号順) */
+    private int[] mLaneCounts = new int[0];
+
+    /** 走査中の各レーンの最後の予定の終了時刻 */
+    private long[] mLaneEnds;
+
+    /**
+     * コンストラクター
+     *
+     * @param maxLanes レーンの数の上限(1以上)
+     */
+    public EventLaneLayout(final int maxLanes) {
+        setMaxLanes(maxLanes);
+    }
+
+    /**
+     * レーンの数の上限を設定する。次の{@link #update}ですべて計算し直す。
+     *
+     * @param maxLanes レーンの数の上限(1以上)
+     */
+    public void setMaxLanes(final int maxLanes) {
+        if (maxLanes < 1) {
+            throw new IllegalArgumentException("maxLanes must be positive: " + maxLanes);
+        }
+        mMaxLanes = maxLanes;
+        mLaneEnds = new long[maxLanes];
+        mSize = 0;
+    }
+
+    /**
+     * レーンの数の上限を取得する。
+     *
+     * @return レーンの数の上限
+     */
+    public int getMaxLanes() {
+        return mMaxLanes;
+    }
+
+    /**
+     * 予定のレーンを計算する。
+     * 前回から変わった予定を含むクラスター以降だけを走査し直す。
+     *
+     * @param timeline カレンダーの予定の索引
+     * @param detailed 個別に描画する予定(予定の番号順。falseの予定はレーンに割り当てない)
+     * @return 走査し直した場合はtrue
+     */
+    public boolean update(final CalendarEventTimeline timeline, final boolean[] detailed) {
+        final CalendarEventStore store = timeline.getStore();
+        final int size = timeline.size();
+
+        // 前回と開始・終了時刻(と、レーンに割り当てるかどうか)が同じ先頭の予定を数える
+        final int oldSize = mSize;
+        int same = 0;
+        while ((same < size) && (same < oldSize)) {
+            final int index = timeline.get(same);
+            if ((store.getStart(index) != mStarts[same]) || (store.getEnd(index) != mEnds[same])
+                    || (detailed[index] != mIncluded[same])) {
+                break;
+            }
+            same++;
+        }
+        if (mStarts.length < size) {
+            mStarts = copyOf(mStarts, size);
+            mEnds = copyOf(mEnds, size);
+            mIncluded = copyOf(mIncluded, size);
+            mPositionLanes = copyOf(mPositionLanes, size);
+            mClusterStarts = copyOf(mClusterStarts, size);
+            mPositionLaneCounts = copyOf(mPositionLaneCounts, size);
+        }
+        for (int i = same; i < size; i++) {
+            final int index = timeline.get(i);
+            mStarts[i] = store.getStart(index);
+            mEnds[i] = store.getEnd(index);
+            mIncluded[i] = detailed[index];
+        }
+        mSize = size;
+
+        // 変わった予定と重なる可能性がある、直前の予定のクラスターから走査し直す
+        final boolean changed = (same < size) || (same < oldSize);
+        if (changed) {
+            sweep((same > 0) ? mClusterStarts[same - 1] : 0);
+        }
+
+        // 予定の番号順の結果を設定する(終日の予定は索引に含まれないため、1レーンとする)
+        if (mLanes.length < store.size()) {
+            mLanes = new int[store.size()];
+            mLaneCounts = new int[store.size()];
+        }
+        for (int i = 0; i < store.size(); i++) {
+            mLanes[i] = 0;
+            mLaneCounts[i] = 1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (mIncluded[i]) {
+                final int index = timeline.get(i);
+                mLanes[index] = mPositionLanes[i];
+                mLaneCounts[index] = mPositionLaneCounts[i];
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 予定のレーンを取得する。
+     *
+     * @param index 予定の番号
+     * @return レーン(0が最も外側)
+     */
+    public int getLane(final int index) {
+        return mLanes[index];
+    }
+
+    /**
+     * 予定が属するクラスターのレーンの数を取得する。
+     *
+     * @param index 予定の番号
+     * @return レーンの数(重なる予定がない場合は1)
+     */
+    public int getLaneCount(final int index) {
+        return mLaneCounts[index];
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 指定した位置から最後まで、予定をレーンに割り当てる。
+     *
+     * @param from 走査を始める位置(クラスターの先頭)
+     */
+    private void sweep(final int from) {
+        int clusterStart = from;
+        long clusterEnd = Long.MIN_VALUE;
+        int lanes = 0;
+        for (int i = from; i < mSize; i++) {
+            if (!mIncluded[i]) {
+                mPositionLanes[i] = 0;
+                mClusterStarts[i] = clusterStart;
+                continue;
+            }
+            final long start = mStarts[i];
+            final long end = Math.max(start, mEnds[i]);
+
+            // どの予定とも重ならなければ、前のクラスターを閉じる
+            if (start >= clusterEnd) {
+                closeCluster(clusterStart, i, lanes);
+                clusterStart = i;
+                clusterEnd = Long.MIN_VALUE;
+                lanes = 0;
+                for (int lane = 0; lane < mMaxLanes; lane++) {
+                    mLaneEnds[lane] = Long.MIN_VALUE;
+                }
+            }
+
+            // 空いている最も外側のレーンに割り当てる(空いていなければ、最も早く空くレーンに重ねる)
+            int lane = 0;
+            for (int candidate = 0; candidate < mMaxLanes; candidate++) {
+                if (mLaneEnds[candidate] <= start) {
+                    lane = candidate;
+                    break;
+                }
+                if (mLaneEnds[candidate] < mLaneEnds[lane]) {
+                    lane = candidate;
+                }
+            }
+            mLaneEnds[lane] = Math.max(mLaneEnds[lane], end);
+            mPositionLanes[i] = lane;
+            mClusterStarts[i] = clusterStart;
+            lanes = Math.max(lanes, lane + 1);
+            clusterEnd = Math.max(clusterEnd, end);
+        }
+        closeCluster(clusterStart, mSize, lanes);
+    }
+
+    /**
+     * クラスターの予定に、クラスターのレーンの数を設定する。
+     *
+     * @param from  クラスターの先頭の位置
+     * @param to    クラスターの終了位置(この位置は含まない)
+     * @param lanes レーンの数
+     */
+    private void closeCluster(final int from, final int to, final int lanes) {
+        for (int i = from; i < to; i++) {
+            mPositionLaneCounts[i] = lanes;
+        }
+    }
+
+    /**
+     * 配列を指定した長さに拡張する。
+     */
+    private static long[] copyOf(final long[] array, final int length) {
+        long[] result = new long[length];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    /**
+     * 配列を指定した長さに拡張する。
+     */
+    private static boolean[] copyOf(final boolean[] array, final int length) {
+        boolean[] result = new boolean[length];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    /**
+     * 配列を指定した長さに拡張する。
+     */
+    private static int[] copyOf(final int[] array, final int length) {
+        int[] result = new int[length];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+}
@@ -0,0 +1,587 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 外周に描画するカレンダーの予定(円弧)の形状を計算するクラス。
+ *
+ * 予定ごとの円弧の開始角度・角度、内側・外側の半径、枠(左側・右側)の線の端点を計算して保持する。
+ * 時間が重なる予定は{@link EventLaneLayout}で同心円状のレーンに振り分け、円弧の幅を分け合う。
+ * 円弧が短すぎる予定と、個別に描画する予定の数の上限を超えた予定は、予定ありの区間にまとめる。
+ * (予定の数によらず、描画する円弧の数に上限を設ける)
+ * 予定、ウォッチフェイスの大きさ、文字盤の位置(現在時刻(時))のいずれかが変わった時だけ
+ * 計算し直す。Androidのクラスに依存しないため、端末がなくても検証できる。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class EventRingGeometry {
+
+    /** 1時間のミリ秒 */
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /** 1分のミリ秒 */
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** 1日のミリ秒 */
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /** 文字盤の頂点(12時)の角度 */
+    private static final float TOP_ANGLE = -90;
+
+    /** 外側の円の余白(ウォッチフェイスの幅からの差) */
+    private static final float OUTER_MARGIN = 70;
+
+    /** 内側の円の余白(ウォッチフェイスの幅からの差) */
+    private static final float INNER_MARGIN = 100;
+
+    /** 個別に描画する予定の円弧の最小の長さ(分) */
+    private static final int MIN_DETAIL_MINUTES = 6;
+
+    /** 予定ごとの枠の線の座標の数(2本 × 2点 × (x, y)) */
+    public static final int SEPARATOR_POINTS_PER_EVENT = 8;
+
+    /** 時間が重なる予定のレーン */
+    private final EventLaneLayout mLaneLayout;
+
+    /** 計算に使った予定の索引 */
+    private CalendarEventTimeline mTimeline;
+
+    /** 計算に使った予定 */
+    private CalendarEventStore mStore;
+
+    /** 計算に使ったウォッチフェイスの幅 */
+    private int mWidth = -1;
+
+    /** 計算に使ったウォッチフェイスの高さ */
+    private int mHeight = -1;
+
+    /** 計算に使った文字盤の位置(1970-01-01 00:00(ローカル時刻)からの時間数) */
+    private long mDialHour = Long.MIN_VALUE;
+
+    /** ウォッチフェイスの中心(X軸の座標) */
+    private float mCenterX;
+
+    /** ウォッチフェイスの中心(Y軸の座標) */
+    private float mCenterY;
+
+    /** 外側の円の半径 */
+    private float mOuterRadius;
+
+    /** 内側の円の半径 */
+    private float mInnerRadius;
+
+    /** 描画するかどうか(終日の予定は描画しない) */
+    private boolean[] mVisible = new boolean[0];
+
+    /** 円弧の開始角度 */
+    private float[] mStartAngles = new float[0];
+
+    /** 円弧の角度 */
+    private float[] mSweepAngles = new float[0];
+
+    /** 円弧の外側の半径(レーンの外側) */
+    private float[] mOuterRadii = new float[0];
+
+    /** 円弧の内側の半径(レーンの内側) */
+    private float[] mInnerRadii = new float[0];
+
+    /** 描画する予定の番号(外側のレーンから順) */
+    private int[] mDrawOrder = new int[0];
+
+    /** 描画する予定の数 */
+    private int mDrawCount = 0;
+
+    /** 個別に描画する予定の数の上限 */
+    private final int mMaxDetailed;
+
+    /** 個別に描画するかどうか(falseの場合は予定ありの区間にまとめる) */
+    private boolean[] mDetailed = new boolean[0];
+
+    /** 開始時刻(文字盤上の分) */
+    private int[] mStartMinutes = new int[0];
+
+    /** 予定の長さ(分) */
+    private int[] mDurationMinutes = new int[0];
+
+    /** 予定の長さ(分)ごとの予定の数(個別に描画する予定を選ぶときに使う。12時間以上は最後の要素) */
+    private final int[] mDurationCounts = new int[721];
+
+    /** 予定ありの区間の開始角度 */
+    private float[] mBusyStartAngles = new float[0];
+
+    /** 予定ありの区間の角度 */
+    private float[] mBusySweepAngles = new float[0];
+
+    /** 予定ありの区間の数 */
+    private int mBusyCount = 0;
+
+    /** 枠(左側・右側)の線の端点 */
+    private float[] mSeparatorPoints = new float[0];
+
+    /** 形状を計算し直した回数 */
+    private int mGeneration = 0;
+
+    /**
+     * コンストラクター
+     *
+     * @param maxLanes    時間が重なる予定を振り分けるレーンの数の上限
+     * @param maxDetailed 個別に描画する予定の数の上限(超えた分は予定ありの区間にまとめる)
+     */
+    public EventRingGeometry(final int maxLanes, final int maxDetailed) {
+        mLaneLayout = new EventLaneLayout(maxLanes);
+        mMaxDetailed = maxDetailed;
+    }
+
+    /**
+     * 時間が重なる予定を振り分けるレーンの数の上限を設定する。
+     *
+     * @param maxLanes レーンの数の上限(1以上)
+     */
+    public void setMaxLanes(final int maxLanes) {
+        if (maxLanes != mLaneLayout.getMaxLanes()) {
+            mLaneLayout.setMaxLanes(maxLanes);
+            mTimeline = null;
+        }
+    }
+
+    /**
+     * 必要な場合だけ、形状を計算し直す。
+     *
+     * @param timeline カレンダーの予定の索引
+     * @param width    ウォッチフェイスの幅
+     * @param height   ウォッチフェイスの高さ
+     * @param now      現在時刻
+     * @return 計算し直した場合はtrue
+     */
+    public boolean update(final CalendarEventTimeline timeline, final int width,
+            final int height, final ClockSnapshot now) {
+        final long dialHour = CalendarUtils.floorDiv(now.getLocalMillis(), HOUR_MILLIS);
+        if ((timeline == mTimeline) && (width == mWidth) && (height == mHeight)
+                && (dialHour == mDialHour)) {
+            return false;
+        }
+        mTimeline = timeline;
+        mStore = timeline.getStore();
+        mWidth = width;
+        mHeight = height;
+        mDialHour = dialHour;
+        rebuild(now.getZone());
+        mGeneration++;
+        return true;
+    }
+
+    /**
+     * 計算した形状を無効にする。次の{@link #update}で必ず計算し直す。
+     * (タイムゾーンが変わると、文字盤の位置(時)が同じでも予定の位置が変わる場合があるため)
+     */
+    public void invalidate() {
+        mDialHour = Long.MIN_VALUE;
+    }
+
+    /**
+     * 形状を計算する。
+     *
+     * @param zone 端末のタイムゾーン
+     */
+    private void rebuild(final TimeZoneCache.Zone zone) {
+        mCenterX = mWidth / 2f;
+        mCenterY = mHeight / 2f;
+        mOuterRadius = (mWidth - OUTER_MARGIN) / 2;
+        mInnerRadius = (mWidth - INNER_MARGIN) / 2;
+
+        final int size = mStore.size();
+        if (mStartAngles.length < size) {
+            mVisible = new boolean[size];
+            mStartAngles = new float[size];
+            mSweepAngles = new float[size];
+            mOuterRadii = new float[size];
+            mInnerRadii = new float[size];
+            mDrawOrder = new int[size];
+            mDetailed = new boolean[size];
+            mStartMinutes = new int[size];
+            mDurationMinutes = new int[size];
+            mSeparatorPoints = new float[size * SEPARATOR_POINTS_PER_EVENT];
+        }
+
+        // 開始時刻を文字盤上の分(0 - 719)に、予定の長さを分に変換する
+        for (int i = 0; i < size; i++) {
+            // 終日の予定と、終了時刻が開始時刻以前の予定はウォッチフェイスに描画しない
+            final long start = mStore.getStart(i);
+            final long end = mStore.getEnd(i);
+            mVisible[i] = !mStore.isAllDay(i) && (end > start);
+            if (!mVisible[i]) {
+                continue;
+            }
+            mStartMinutes[i] = toDialMinutes(start, zone);
+            mDurationMinutes[i] = (int) ((end - start) / MINUTE_MILLIS);
+        }
+
+        // 個別に描画する予定を選び、それ以外の予定は予定ありの区間にまとめる
+        selectDetailedEvents(size);
+        buildBusySegments(zone);
+
+        // 個別に描画する予定のうち、時間が重なる予定をレーンに振り分ける
+        // (前回から変わった予定を含むクラスター以降だけが計算し直される)
+        mLaneLayout.update(mTimeline, mDetailed);
+
+        for (int i = 0; i < size; i++) {
+            if (!mDetailed[i]) {
+                continue;
+            }
+            final int startMinutes = mStartMinutes[i];
+            final int durationMinutes = mDurationMinutes[i];
+            final int endMinutes = startMinutes + durationMinutes;
+
+            // 円弧の角度を設定する
+            mStartAngles[i] = TOP_ANGLE + (startMinutes / 720f * 360);
+            mSweepAngles[i] = durationMinutes / 720f * 360;
+
+            // レーンの半径を設定する(外側のレーンから順に、円弧の幅を等分する)
+            final float laneWidth = (mOuterRadius - mInnerRadius) / mLaneLayout.getLaneCount(i);
+            mOuterRadii[i] = mOuterRadius - (laneWidth * mLaneLayout.getLane(i));
+            mInnerRadii[i] = mOuterRadii[i] - laneWidth;
+
+            // 枠(左側・右側)の線の端点を設定する
+            setSeparatorPoints(i * SEPARATOR_POINTS_PER_EVENT, startMinutes, i);
+            setSeparatorPoints((i * SEPARATOR_POINTS_PER_EVENT) + 4, endMinutes, i);
+        }
+
+        // 描画する順番を設定する
+        // (円弧は中心からの扇形を重ねて描画するため、外側のレーンの予定から順に描画する)
+        mDrawCount = 0;
+        for (int lane = 0; lane < mLaneLayout.getMaxLanes(); lane++) {
+            for (int i = 0; i < size; i++) {
+                if (mDetailed[i] && (mLaneLayout.getLane(i) == lane)) {
+                    mDrawOrder[mDrawCount++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * 個別に描画する予定を選ぶ。
+     *
+     * 円弧が短すぎる予定は個別に描画しない。個別に描画する予定が上限を超える場合は、
+     * 長い予定から順に上限まで選ぶ。(予定の長さ(分)ごとに数えるため、並べ替えは行わない)
+     *
+     * @param size 予定の数
+     */
+    private void selectDetailedEvents(final int size) {
+        // 円弧が短すぎない予定を、予定の長さごとに数える
+        final int[] counts = mDurationCounts;
+        for (int minutes = 0; minutes < counts.length; minutes++) {
+            counts[minutes] = 0;
+        }
+        int candidates = 0;
+        for (int i = 0; i < size; i++) {
+            mDetailed[i] = mVisible[i] && (mDurationMinutes[i] >= MIN_DETAIL_MINUTES);
+            if (mDetailed[i]) {
+                counts[Math.min(mDurationMinutes[i], counts.length - 1)]++;
+                candidates++;
+            }
+        }
+        if (candidates <= mMaxDetailed) {
+            return;
+        }
+
+        // 上限に収まる最も短い予定の長さと、その長さの予定を選べる数を求める
+        int cutoff = counts.length - 1;
+        int remaining = mMaxDetailed;
+        while ((cutoff > 0) && (counts[cutoff] <= remaining)) {
+            remaining -= counts[cutoff];
+            cutoff--;
+        }
+
+        // 上限を超える予定は、予定ありの区間にまとめる
+        for (int i = 0; i < size; i++) {
+            if (!mDetailed[i]) {
+                continue;
+            }
+            final int minutes = Math.min(mDurationMinutes[i], counts.length - 1);
+            if (minutes < cutoff) {
+                mDetailed[i] = false;
+            } else if (minutes == cutoff) {
+                mDetailed[i] = (remaining > 0);
+                remaining--;
+            }
+        }
+    }
+
+    /**
+     * 個別に描画しない予定を、予定ありの区間にまとめる。
+     * 開始時刻順に走査し、重なる予定と、間隔が円弧の最小の長さより短い予定を1つの区間にする。
+     * 描画しない予定(終了時刻が開始時刻以前の予定)は区間に含めない。
+     * (区間の数は、予定の数によらず 720 / {@link #MIN_DETAIL_MINUTES} 以下になる)
+     *
+     * @param zone 端末のタイムゾーン
+     */
+    private void buildBusySegments(final TimeZoneCache.Zone zone) {
+        mBusyCount = 0;
+        long segmentStart = Long.MIN_VALUE;
+        long segmentEnd = Long.MIN_VALUE;
+        for (int position = 0; position < mTimeline.size(); position++) {
+            final int index = mTimeline.get(position);
+            if (!mVisible[index] || mDetailed[index]) {
+                continue;
+            }
+            final long start = mStore.getStart(index);
+            final long end = mStore.getEnd(index);
+            if ((segmentStart != Long.MIN_VALUE)
+                    && (start <= segmentEnd + (MIN_DETAIL_MINUTES * MINUTE_MILLIS))) {
+                segmentEnd = Math.max(segmentEnd, end);
+                continue;
+            }
+            addBusySegment(segmentStart, segmentEnd, zone);
+            segmentStart = start;
+            segmentEnd = end;
+        }
+        addBusySegment(segmentStart, segmentEnd, zone);
+    }
+
+    /**
+     * 予定ありの区間を追加する。
+     *
+     * @param start 区間の開始時刻(Long.MIN_VALUEの場合は追加しない)
+     * @param end   区間の終了時刻
+     * @param zone  端末のタイムゾーン
+     */
+    private void addBusySegment(final long start, final long end,
+            final TimeZoneCache.Zone zone) {
+        if (start == Long.MIN_VALUE) {
+            return;
+        }
+        if (mBusyStartAngles.length <= mBusyCount) {
+            final int capacity = Math.max(8, mBusyCount * 2);
+            mBusyStartAngles = copyOf(mBusyStartAngles, capacity);
+            mBusySweepAngles = copyOf(mBusySweepAngles, capacity);
+        }
+        final float minutes = (end - start) / (float) MINUTE_MILLIS;
+        mBusyStartAngles[mBusyCount] = TOP_ANGLE + (toDialMinutes(start, zone) / 720f * 360);
+        mBusySweepAngles[mBusyCount] = minutes / 720f * 360;
+        mBusyCount++;
+    }
+
+    /**
+     * 時刻を文字盤上の分(0 - 1439、12時間で一周する)に変換する。
+     *
+     * @param time 時刻(UTC)
+     * @param zone 端末のタイムゾーン
+     * @return 文字盤上の分
+     */
+    private static int toDialMinutes(final long time, final TimeZoneCache.Zone zone) {
+        final long local = time + zone.getOffset(time);
+        return (int) (CalendarUtils.floorMod(local, DAY_MILLIS) / MINUTE_MILLIS);
+    }
+
+    /**
+     * 配列を指定した長さに拡張する。
+     */
+    private static float[] copyOf(final float[] array, final int length) {
+        float[] result = new float[length];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    /**
+     * 枠の線の端点を設定する。
+     *
+     * @param offset  座標の格納位置
+     * @param minutes 文字盤上の分
+     * @param index   予定の番号
+     */
+    private void setSeparatorPoints(final int offset, final int minutes, final int index) {
+        final float sin = TrigTable.sinDialMinute(minutes);
+        final float cos = -TrigTable.cosDialMinute(minutes);
+        mSeparatorPoints[offset] = mCenterX + (sin * mInnerRadii[index]);
+        mSeparatorPoints[offset + 1] = mCenterY + (cos * mInnerRadii[index]);
+        mSeparatorPoints[offset + 2] = mCenterX + (sin * mOuterRadii[index]);
+        mSeparatorPoints[offset + 3] = mCenterY + (cos * mOuterRadii[index]);
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 計算に使った予定を取得する。
+     *
+     * @return カレンダーの予定
+     */
+    public CalendarEventStore getStore() {
+        return mStore;
+    }
+
+    /**
+     * 形状を計算し直した回数を取得する。(形状に依存するキャッシュの判定に使う)
+     *
+     * @return 計算し直した回数
+     */
+    public int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * 予定の数を取得する。
+     *
+     * @return 予定の数
+     */
+    public int size() {
+        return (mStore != null) ? mStore.size() : 0;
+    }
+
+    /**
+     * 予定を個別に描画するかどうかを取得する。
+     *
+     * @param index 予定の番号
+     * @return 個別に描画する場合はtrue(終日の予定と、予定ありの区間にまとめた予定はfalse)
+     */
+    public boolean isVisible(final int index) {
+        return mDetailed[index];
+    }
+
+    /**
+     * 円弧の開始角度を取得する。
+     *
+     * @param index 予定の番号
+     * @return 開始角度(3時の方向を0度とする時計回りの角度)
+     */
+    public float getStartAngle(final int index) {
+        return mStartAngles[index];
+    }
+
+    /**
+     * 円弧の角度を取得する。
+     *
+     * @param index 予定の番号
+     * @return 角度
+     */
+    public float getSweepAngle(final int index) {
+        return mSweepAngles[index];
+    }
+
+    /**
+     * 円弧の外側の半径を取得する。
+     *
+     * @param index 予定の番号
+     * @return 外側の半径
+     */
+    public float getOuterRadius(final int index) {
+        return mOuterRadii[index];
+    }
+
+    /**
+     * 円弧の内側の半径を取得する。
+     *
+     * @param index 予定の番号
+     * @return 内側の半径
+     */
+    public float getInnerRadius(final int index) {
+        return mInnerRadii[index];
+    }
+
+    /**
+     * 予定が円弧の幅をすべて使うかどうか(時間が重なる予定がないかどうか)を取得する。
+     *
+     * @param index 予定の番号
+     * @return 円弧の幅をすべて使う場合はtrue
+     */
+    public boolean isFullWidth(final int index) {
+        return mLaneLayout.getLaneCount(index) == 1;
+    }
+
+    /**
+     * 描画する予定の数を取得する。
+     *
+     * @return 描画する予定の数
+     */
+    public int getDrawCount() {
+        return mDrawCount;
+    }
+
+    /**
+     * 描画する順番の予定の番号を取得する。(外側のレーンの予定から順)
+     *
+     * @param order 描画する順番(0 - {@link #getDrawCount()} - 1)
+     * @return 予定の番号
+     */
+    public int getDrawIndex(final int order) {
+        return mDrawOrder[order];
+    }
+
+    /**
+     * 予定ありの区間(個別に描画しない予定をまとめたもの)の数を取得する。
+     *
+     * @return 予定ありの区間の数
+     */
+    public int getBusyCount() {
+        return mBusyCount;
+    }
+
+    /**
+     * 予定ありの区間の開始角度を取得する。
+     *
+     * @param index 区間の番号
+     * @return 開始角度(3時の方向を0度とする時計回りの角度)
+     */
+    public float getBusyStartAngle(final int index) {
+        return mBusyStartAngles[index];
+    }
+
+    /**
+     * 予定ありの区間の角度を取得する。
+     *
+     * @param index 区間の番号
+     * @return 角度
+     */
+    public float getBusySweepAngle(final int index) {
+        return mBusySweepAngles[index];
+    }
+
+    /**
+     * 枠(左側・右側)の線の端点を取得する。
+     * 予定ごとに{@link #SEPARATOR_POINTS_PER_EVENT}個の座標(x0, y0, x1, y1, ...)が並ぶ。
+     *
+     * @return 枠の線の端点
+     */
+    public float[] getSeparatorPoints() {
+        return mSeparatorPoints;
+    }
+
+    /**
+     * ウォッチフェイスの中心(X軸の座標)を取得する。
+     *
+     * @return 中心(X軸の座標)
+     */
+    public float getCenterX() {
+        return mCenterX;
+    }
+
+    /**
+     * ウォッチフェイスの中心(Y軸の座標)を取得する。
+     *
+     * @return 中心(Y軸の座標)
+     */
+    public float getCenterY() {
+        return mCenterY;
+    }
+
+    /**
+     * 外側の円の半径を取得する。
+     *
+     * @return 外側の円の半径
+     */
+    public float getOuterRadius() {
+        return mOuterRadius;
+    }
+
+    /**
+     * 内側の円の半径を取得する。
+     *
+     * @return 内側の円の半径
+     */
+    public float getInnerRadius() {
+        return mInnerRadius;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文字盤に表示する範囲(現在時刻(時)から12時間)を計算し、予定をその範囲に収めるユーティリティークラス
+ *
+ * 時刻はすべてUTCのミリ秒のまま扱い、現地時刻の正時はタイムゾーンのオフセットから計算する。
+ * ({@link java.util.Calendar}は使わない)
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class EventWindow {
+
+    /** 1時間のミリ秒 */
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /** 表示範囲の長さ(文字盤の12時間) */
+    public static final long SPAN_MILLIS = TimeUnit.HOURS.toMillis(12);
+
+    /**
+     * インスタンス化できないようにするためにデフォルトコンストラクターを抑制する
+     */
+    private EventWindow() {
+        throw new AssertionError();
+    }
+
+    /**
+     * 指定した時刻を含む、現地時刻の正時を取得する。
+     *
+     * @param time 時刻(UTC)
+     * @param zone 端末のタイムゾーン
+     * @return 現地時刻の正時(UTC)
+     */
+    public static long getHourStart(final long time, final TimeZoneCache.Zone zone) {
+        final long local = time + zone.getOffset(time);
+        return time - CalendarUtils.floorMod(local, HOUR_MILLIS);
+    }
+
+    /**
+     * 予定を表示範囲に収める。
+     * 表示範囲に重ならない予定(表示範囲の終了以降に始まる予定、表示範囲の開始以前に終わる予定)と、
+     * 終了時刻が開始時刻より前の予定は取り除く。
+     * 残った予定は、開始時刻が表示範囲の開始(現在時刻(時))より前の場合は開始時刻を表示範囲の開始に、
+     * 終了時刻が表示範囲の終了(現在時刻(時)の12時間後)より後の場合は終了時刻を表示範囲の終了にする。
+     * (予定の順序は変えない)
+     *
+     * @param events    カレンダーの予定(開始・終了時刻を書き換え、取り除いた予定を詰める)
+     * @param hourStart 表示範囲の開始({@link #getHourStart(long, TimeZoneCache.Zone)})
+     */
+    public static void clamp(final List<CalendarEvent> events, final long hourStart) {
+        final long hourEnd = hourStart + SPAN_MILLIS;
+        int size = 0;
+        for (int i = 0, count = events.size(); i < count; i++) {
+            final CalendarEvent event = events.get(i);
+            final long start = event.getDtStart();
+            final long end = event.getDtEnd();
+            if ((start >= hourEnd) || (end <= hourStart) || (end < start)) {
+                continue;
+            }
+            if (start < hourStart) {
+                event.setDtStart(hourStart);
+            }
+            if (end > hourEnd) {
+                event.setDtEnd(hourEnd);
+            }
+            events.set(size++, event);
+        }
+        events.subList(size, events.size()).clear();
+    }
+}
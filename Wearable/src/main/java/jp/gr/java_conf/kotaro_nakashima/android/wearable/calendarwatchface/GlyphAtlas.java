@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * 数字(0 - 9)と区切り文字(:)をビットマップに描画しておき、転写して文字列を描画するクラス。
+ *
+ * 毎秒変わる残り時間の文字列を、文字の描画(文字の形状の計算)をせずに描画する。
+ * 数字はすべて同じ幅で並べるため、数字が変わっても文字列の位置がずれない。
+ * ビットマップは描画スタイルの文字の大きさ、色、アンチエイリアスが変わった時だけ作り直す。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class GlyphAtlas {
+
+    /** ビットマップに描画する文字 */
+    private static final String GLYPHS = "0123456789:";
+
+    /** 区切り文字の位置 */
+    private static final int COLON_INDEX = 10;
+
+    /** ビットマップに描画するための描画スタイル */
+    private final Paint mPaint = new Paint();
+
+    /** 転写元の範囲 */
+    private final Rect mSource = new Rect();
+
+    /** 転写先の範囲 */
+    private final Rect mDestination = new Rect();
+
+    /** 文字を描画したビットマップ */
+    private Bitmap mBitmap;
+
+    /** ビットマップを作成した時の文字の大きさ */
+    private float mTextSize;
+
+    /** ビットマップを作成した時の色 */
+    private int mColor;
+
+    /** ビットマップを作成した時のアンチエイリアス */
+    private boolean mAntiAlias;
+
+    /** 1文字分の枠の幅(数字の送り幅) */
+    private int mCellWidth;
+
+    /** 区切り文字の送り幅 */
+    private int mColonWidth;
+
+    /** 1文字分の枠の高さ */
+    private int mCellHeight;
+
+    /** 枠の上端からベースラインまでの高さ */
+    private int mBaseline;
+
+    /**
+     * 文字列を描画する。描画スタイルが変わった場合は、ビットマップを作り直す。
+     * 数字と区切り文字以外の文字は、空白として扱う。
+     *
+     * @param canvas    描画に利用するキャンバス
+     * @param text      文字列
+     * @param start     文字列の開始位置
+     * @param count     文字数
+     * @param centerX   文字列の中心(X軸の座標)
+     * @param baselineY 文字列のベースライン(Y軸の座標)
+     * @param paint     描画スタイル(文字の大きさ、色、アンチエイリアスだけを使う)
+     */
+    public void draw(final Canvas canvas, final char[] text, final int start, final int count,
+            final float centerX, final float baselineY, final Paint paint) {
+        if ((mBitmap == null) || (paint.getTextSize() != mTextSize)
+                || (paint.getColor() != mColor) || (paint.isAntiAlias() != mAntiAlias)) {
+            rebuild(paint);
+        }
+
+        // 文字列の幅を求める
+        int width = 0;
+        for (int i = start; i < start + count; i++) {
+            width += (text[i] == ':') ? mColonWidth : mCellWidth;
+        }
+
+        // 1文字ずつ転写する
+        int x = Math.round(centerX - (width / 2f));
+        final int top = Math.round(baselineY) - mBaseline;
+        for (int i = start; i < start + count; i++) {
+            final char c = text[i];
+            final int advance = (c == ':') ? mColonWidth : mCellWidth;
+            int glyph = -1;
+            if (c == ':') {
+                glyph = COLON_INDEX;
+            } else if ((c >= '0') && (c <= '9')) {
+                glyph = c - '0';
+            }
+            if (glyph >= 0) {
+                final int left = (glyph * mCellWidth) + ((mCellWidth - advance) / 2);
+                mSource.set(left, 0, left + advance, mCellHeight);
+                mDestination.set(x, top, x + advance, top + mCellHeight);
+                canvas.drawBitmap(mBitmap, mSource, mDestination, null);
+            }
+            x += advance;
+        }
+    }
+
+    /**
+     * ビットマップを破棄する。次に描画する時に作り直す。
+     */
+    public void release() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 文字をビットマップに描画する。
+     *
+     * @param paint 描画スタイル
+     */
+    private void rebuild(final Paint paint) {
+        release();
+        mTextSize = paint.getTextSize();
+        mColor = paint.getColor();
+        mAntiAlias = paint.isAntiAlias();
+
+        mPaint.set(paint);
+        mPaint.setTextAlign(Paint.Align.CENTER);
+
+        // 1文字分の枠の大きさを求める(数字の中で最も幅の広い文字に合わせる)
+        float maxWidth = 0;
+        for (int i = 0; i < COLON_INDEX; i++) {
+            maxWidth = Math.max(maxWidth, mPaint.measureText(GLYPHS.substring(i, i + 1)));
+        }
+        mCellWidth = Math.max(1, (int) Math.ceil(maxWidth));
+        mColonWidth = Math.min(mCellWidth, (int) Math.ceil(mPaint.measureText(":")));
+        mBaseline = (int) Math.ceil(-mPaint.ascent());
+        mCellHeight = Math.max(1, mBaseline + (int) Math.ceil(mPaint.descent()));
+
+        // 文字を描画する
+        mBitmap = Bitmap.createBitmap(mCellWidth * GLYPHS.length(), mCellHeight,
+                Bitmap.Config.ARGB_8888);
+        mBitmap.eraseColor(Color.TRANSPARENT);
+        final Canvas canvas = new Canvas(mBitmap);
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            canvas.drawText(GLYPHS, i, i + 1, (i * mCellWidth) + (mCellWidth / 2f), mBaseline,
+                    mPaint);
+        }
+    }
+}
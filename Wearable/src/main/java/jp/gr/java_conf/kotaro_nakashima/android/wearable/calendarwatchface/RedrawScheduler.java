@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ウォッチフェイスを描画し直す時刻を決めるクラス。
+ *
+ * 一定の間隔で描画し直すのではなく、表示している内容が次に変わる時刻(秒針、残り時間の数字、
+ * 短針・長針と予定の表示範囲)を計算し、その時刻まで描画しない。
+ * 時刻以外の理由(バッテリー、予定の読み込み、タイムゾーンなど)による描画の要求は、
+ * 描画されるまでの間に何回要求されても1回の描画にまとめる。
+ * Androidのクラスに依存しないため、端末がなくても検証できる。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class RedrawScheduler {
+
+    /** 1秒のミリ秒 */
+    private static final long SECOND_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    /** 1分のミリ秒 */
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** 残り時間を表示しない場合の値 */
+    public static final long NO_COUNTDOWN = Long.MIN_VALUE;
+
+    /** 描画の理由: 時刻 */
+    public static final int REASON_TIME = 1;
+
+    /** 描画の理由: バッテリー */
+    public static final int REASON_BATTERY = 1 << 1;
+
+    /** 描画の理由: カレンダーの予定 */
+    public static final int REASON_CALENDAR = 1 << 2;
+
+    /** 描画の理由: タイムゾーン */
+    public static final int REASON_TIME_ZONE = 1 << 3;
+
+    /** 描画の理由: 表示の設定(ミュートなど) */
+    public static final int REASON_SETTINGS = 1 << 4;
+
+    /** 描画を要求済みの理由(描画されるまでの間に要求された理由の論理和) */
+    private int mPendingReasons = 0;
+
+    /** 1秒ごとに描画していた場合と比べて、描画しなかった回数 */
+    private long mSkippedWakeups = 0;
+
+    /** 描画の要求を、要求済みの描画にまとめた回数 */
+    private long mCoalescedRequests = 0;
+
+    /**
+     * 表示している内容が次に変わる時刻を計算する。
+     *
+     * @param currentTimeMillis  現在時刻
+     * @param secondHandVisible  秒針を表示しているかどうか
+     * @param countdownRemaining 残り時間(ミリ秒、表示しない場合は{@link #NO_COUNTDOWN})
+     * @return 次に描画し直す時刻
+     */
+    public long getNextRedrawTime(final long currentTimeMillis, final boolean secondHandVisible,
+            final long countdownRemaining) {
+        // 短針・長針(と予定の表示範囲)は、次の分の始まりに変わる
+        long next = (CalendarUtils.floorDiv(currentTimeMillis, MINUTE_MILLIS) + 1)
+                * MINUTE_MILLIS;
+
+        // 秒針は、次の秒の始まりに変わる
+        if (secondHandVisible) {
+            next = Math.min(next,
+                    (CalendarUtils.floorDiv(currentTimeMillis, SECOND_MILLIS) + 1)
+                            * SECOND_MILLIS);
+        }
+
+        // 残り時間(秒単位に切り上げて表示する)は、残り時間が秒の区切りを過ぎた時に変わる
+        // (残り時間がなくなった時は、次の予定に切り替わる)
+        if ((countdownRemaining != NO_COUNTDOWN) && (countdownRemaining > 0)) {
+            next = Math.min(next, currentTimeMillis
+                    + CalendarUtils.floorMod(countdownRemaining - 1, SECOND_MILLIS) + 1);
+        }
+
+        // 1秒ごとに描画していた場合に描画していた回数(現在時刻から次の描画の前まで)を数える
+        final long skipped = CalendarUtils.floorDiv(next - 1, SECOND_MILLIS)
+                - CalendarUtils.floorDiv(currentTimeMillis, SECOND_MILLIS);
+        if (skipped > 0) {
+            mSkippedWakeups += skipped;
+        }
+        return next;
+    }
+
+    /**
+     * 描画を要求する。
+     *
+     * @param reason 描画の理由(REASON_*)
+     * @return 新たに描画の予約が必要な場合はtrue(要求済みの描画にまとめた場合はfalse)
+     */
+    public boolean request(final int reason) {
+        final boolean first = (mPendingReasons == 0);
+        if (!first) {
+            mCoalescedRequests++;
+        }
+        mPendingReasons |= reason;
+        return first;
+    }
+
+    /**
+     * 要求済みの描画の理由を取得し、要求を取り消す。(描画する時に呼ぶ)
+     *
+     * @return 描画の理由(REASON_*の論理和、要求がない場合は0)
+     */
+    public int consume() {
+        final int reasons = mPendingReasons;
+        mPendingReasons = 0;
+        return reasons;
+    }
+
+    /**
+     * 1秒ごとに描画していた場合と比べて、描画しなかった回数を取得する。
+     *
+     * @return 描画しなかった回数
+     */
+    public long getSkippedWakeups() {
+        return mSkippedWakeups;
+    }
+
+    /**
+     * 描画の要求を、要求済みの描画にまとめた回数を取得する。
+     *
+     * @return まとめた回数
+     */
+    public long getCoalescedRequests() {
+        return mCoalescedRequests;
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+/**
+ * バッテリーの残量、充電中かどうか、ミュートモードかどうかから、描画の内容(描画プロファイル)を決める
+ * ユーティリティークラス
+ *
+ * <ul>
+ * <li>{@link #PROFILE_FULL}: すべての内容を描画する。(秒針は1秒ごと、アンチエイリアスあり)</li>
+ * <li>{@link #PROFILE_SAVER}: 秒針と、毎秒変わる文字(残り時間)・手間のかかる文字(予定のタイトル、
+ * 次の予定のメッセージ)を描画しない。描画し直すのは1分に1回になる。</li>
+ * <li>{@link #PROFILE_ULTRA}: 短針・長針とカレンダーの予定の円弧だけを描画する。</li>
+ * </ul>
+ *
+ * バッテリーの残量が境界の前後で増減してもプロファイルが頻繁に切り替わらないように、
+ * 節約する方向へ切り替える残量と、元に戻す残量に差(ヒステリシス)を設ける。
+ * ミュートモードの間は、充電中でもバッテリーの残量によらず省電力以上にする。
+ * (通知を止めている間は、毎秒動く秒針・残り時間も描画しない)
+ * 描画プロファイルの値はスマートフォンの設定画面と共有する({@link WatchFaceStatus})。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class RenderProfile {
+
+    /** 描画プロファイル: 通常 */
+    public static final int PROFILE_FULL = WatchFaceStatus.PROFILE_FULL;
+
+    /** 描画プロファイル: 省電力 */
+    public static final int PROFILE_SAVER = WatchFaceStatus.PROFILE_SAVER;
+
+    /** 描画プロファイル: 超省電力 */
+    public static final int PROFILE_ULTRA = WatchFaceStatus.PROFILE_ULTRA;
+
+    /** 描画する内容: 秒針 */
+    public static final int FEATURE_SECOND_HAND = 1;
+
+    /** 描画する内容: カレンダーの次の予定の残り時間 */
+    public static final int FEATURE_COUNTDOWN = 1 << 1;
+
+    /** 描画する内容: カレンダーの次の予定のメッセージ */
+    public static final int FEATURE_NEXT_EVENT_MESSAGE = 1 << 2;
+
+    /** 描画する内容: カレンダーの予定のタイトル */
+    public static final int FEATURE_EVENT_TITLES = 1 << 3;
+
+    /** 描画する内容: バッテリーの残量 */
+    public static final int FEATURE_BATTERY = 1 << 4;
+
+    /** 描画する内容: 日付・曜日 */
+    public static final int FEATURE_DATE = 1 << 5;
+
+    /** 描画する内容: アンチエイリアス */
+    public static final int FEATURE_ANTI_ALIAS = 1 << 6;
+
+    /** 省電力に切り替えるバッテリーの残量(%) */
+    private static final int SAVER_ENTER_PERCENT = 30;
+
+    /** 省電力から通常に戻すバッテリーの残量(%) */
+    private static final int SAVER_EXIT_PERCENT = 35;
+
+    /** 超省電力に切り替えるバッテリーの残量(%) */
+    private static final int ULTRA_ENTER_PERCENT = 15;
+
+    /** 超省電力から省電力に戻すバッテリーの残量(%) */
+    private static final int ULTRA_EXIT_PERCENT = 20;
+
+    /**
+     * インスタンス化できないようにするためにデフォルトコンストラクターを抑制する
+     */
+    private RenderProfile() {
+        throw new AssertionError();
+    }
+
+    /**
+     * 描画プロファイルを選ぶ。
+     *
+     * @param current      現在の描画プロファイル
+     * @param batteryLevel バッテリーの残量
+     * @param batteryScale バッテリーの最大値(0以下の場合は残量が不明として扱う)
+     * @param charging     充電中の場合はtrue
+     * @param mute         ミュートモードの場合はtrue
+     * @return 描画プロファイル
+     */
+    public static int select(final int current, final int batteryLevel, final int batteryScale,
+            final boolean charging, final boolean mute) {
+        int profile = PROFILE_FULL;
+        if (!charging && (batteryScale > 0)) {
+            final int percent = (batteryLevel * 100) / batteryScale;
+            switch (current) {
+                case PROFILE_ULTRA:
+                    if (percent < ULTRA_EXIT_PERCENT) {
+                        profile = PROFILE_ULTRA;
+                    } else if (percent < SAVER_EXIT_PERCENT) {
+                        profile = PROFILE_SAVER;
+                    }
+                    break;
+                case PROFILE_SAVER:
+                    if (percent <= ULTRA_ENTER_PERCENT) {
+                        profile = PROFILE_ULTRA;
+                    } else if (percent < SAVER_EXIT_PERCENT) {
+                        profile = PROFILE_SAVER;
+                    }
+                    break;
+                default:
+                    if (percent <= ULTRA_ENTER_PERCENT) {
+                        profile = PROFILE_ULTRA;
+                    } else if (percent <= SAVER_ENTER_PERCENT) {
+                        profile = PROFILE_SAVER;
+                    }
+                    break;
+            }
+        }
+        if (mute && (profile == PROFILE_FULL)) {
+            profile = PROFILE_SAVER;
+        }
+        return profile;
+    }
+
+    /**
+     * 描画プロファイルで描画する内容を取得する。
+     *
+     * @param profile 描画プロファイル
+     * @return 描画する内容(FEATURE_*の論理和)
+     */
+    public static int getFeatures(final int profile) {
+        switch (profile) {
+            case PROFILE_ULTRA:
+                return 0;
+            case PROFILE_SAVER:
+                return FEATURE_BATTERY | FEATURE_DATE;
+            default:
+                return FEATURE_SECOND_HAND | FEATURE_COUNTDOWN | FEATURE_NEXT_EVENT_MESSAGE
+                        | FEATURE_EVENT_TITLES | FEATURE_BATTERY | FEATURE_DATE
+                        | FEATURE_ANTI_ALIAS;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.PutDataMapRequest;
+import com.google.android.gms.wearable.Wearable;
+
+/**
+ * 現在の描画プロファイルをデータアイテムに書き込み、スマートフォンの設定画面から
+ * 参照できるようにするクラス。
+ *
+ * 描画プロファイルが変わった時だけ書き込む。接続していない間に変わった場合は、
+ * 接続した時に最後の描画プロファイルを書き込む。
+ * 接続はウォッチフェイスのエンジンごとに1回だけ行う。(画面の点灯・消灯では接続し直さない)
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class RenderProfilePublisher implements GoogleApiClient.ConnectionCallbacks,
+        GoogleApiClient.OnConnectionFailedListener {
+
+    private static final String TAG = "RenderProfilePublisher";
+
+    /** Google APIのクライアント */
+    private final GoogleApiClient mGoogleApiClient;
+
+    /** 書き込む描画プロファイル(未設定の場合は-1) */
+    private int mProfile = -1;
+
+    /** 書き込み済みの描画プロファイル(未書き込みの場合は-1) */
+    private int mPublishedProfile = -1;
+
+    /**
+     * 書き込みの結果を確認する処理
+     */
+    private final ResultCallback<DataApi.DataItemResult> mResultCallback =
+            new ResultCallback<DataApi.DataItemResult>() {
+                @Override
+                public void onResult(DataApi.DataItemResult result) {
+                    if (!result.getStatus().isSuccess()) {
+                        Log.w(TAG, "putDataItem: failed to publish render profile");
+                        mPublishedProfile = -1;
+                    }
+                }
+            };
+
+    /**
+     * コンストラクター
+     *
+     * @param context コンテキスト
+     */
+    public RenderProfilePublisher(final Context context) {
+        mGoogleApiClient = new GoogleApiClient.Builder(context)
+                .addConnectionCallbacks(this)
+                .addOnConnectionFailedListener(this)
+                .addApi(Wearable.API)
+                .build();
+    }
+
+    /**
+     * 接続する。
+     */
+    public void connect() {
+        mGoogleApiClient.connect();
+    }
+
+    /**
+     * 切断する。
+     */
+    public void disconnect() {
+        if (mGoogleApiClient.isConnected()) {
+            mGoogleApiClient.disconnect();
+        }
+    }
+
+    /**
+     * 描画プロファイルを書き込む。(書き込み済みの値と同じ場合は何もしない)
+     *
+     * @param profile 描画プロファイル(RenderProfile.PROFILE_*)
+     */
+    public void publish(final int profile) {
+        mProfile = profile;
+        if (mGoogleApiClient.isConnected()) {
+            putProfile();
+        }
+    }
+
+    @Override
+    public void onConnected(Bundle connectionHint) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "onConnected: " + connectionHint);
+        }
+        putProfile();
+    }
+
+    @Override
+    public void onConnectionSuspended(int cause) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "onConnectionSuspended: " + cause);
+        }
+    }
+
+    @Override
+    public void onConnectionFailed(ConnectionResult result) {
+        Log.w(TAG, "onConnectionFailed: " + result.getErrorCode());
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 描画プロファイルをデータアイテムに書き込む。
+     */
+    private void putProfile() {
+        if ((mProfile < 0) || (mProfile == mPublishedProfile)) {
+            return;
+        }
+        final PutDataMapRequest request = PutDataMapRequest.create(WatchFaceStatus.PATH_STATUS);
+        request.getDataMap().putInt(WatchFaceStatus.KEY_RENDER_PROFILE, mProfile);
+        Wearable.DataApi.putDataItem(mGoogleApiClient, request.asPutDataRequest())
+                .setResultCallback(mResultCallback);
+        mPublishedProfile = mProfile;
+    }
+}
@@ -0,0 +1,442 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.util.SparseArray;
+
+/**
+ * ウォッチフェイスの描画に使う描画スタイルを保持するクラス。
+ *
+ * 描画処理のたびに{@link Paint}を作成しないように、役割ごとの描画スタイルを
+ * あらかじめ作成しておく。カレンダーの予定の塗りつぶしは、カレンダーの色ごとに作成して保持する。
+ * AmbientModeの描画スタイルは{@link AmbientRenderer}が保持する。(描画スレッドからのみ利用する)
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class RenderResources {
+
+    /** 短針の描画スタイル */
+    private final Paint mHourPaint;
+
+    /** 長針の描画スタイル */
+    private final Paint mMinutePaint;
+
+    /** 秒針の描画スタイル */
+    private final Paint mSecondPaint;
+
+    /** 秒針の先端部分の描画スタイル */
+    private final Paint mSecondTipPaint;
+
+    /** 目盛り(小)の描画スタイル */
+    private final Paint mTickPaintSmall;
+
+    /** 目盛り(大)の描画スタイル */
+    private final Paint mTickPaintBig;
+
+    /** バッテリーの残量(線)の描画スタイル */
+    private final Paint mBatteryArcPaint;
+
+    /** バッテリーの残量(先端)の描画スタイル */
+    private final Paint mBatteryTipPaint;
+
+    /** カレンダーの予定の枠(下側)の描画スタイル */
+    private final Paint mEventLowerSidePaint;
+
+    /** カレンダーの予定の枠(左側・右側、円)の描画スタイル */
+    private final Paint mEventSidePaint;
+
+    /** まとめて描画するカレンダーの予定(予定あり)の描画スタイル */
+    private final Paint mEventBusyPaint;
+
+    /** カレンダーの予定のタイトルの描画スタイル */
+    private final Paint mEventTitlePaint;
+
+    /** カレンダーの予定の枠(上側)の描画スタイル(カレンダーの色ごと) */
+    private final SparseArray<Paint> mEventFillPaints = new SparseArray<>();
+
+    /** カレンダーの予定の枠(上側)のアンチエイリアス */
+    private boolean mEventFillAntiAlias = true;
+
+    /** カレンダーの次の予定のメッセージの描画スタイル */
+    private final Paint mNextEventMessagePaint;
+
+    /** カレンダーの次の予定の残り時間の描画スタイル */
+    private final Paint mNextEventTimePaint;
+
+    /** 日付・曜日の枠の描画スタイル */
+    private final Paint mCalendarFramePaint;
+
+    /** 日付・曜日の外枠の描画スタイル */
+    private final Paint mCalendarOuterFramePaint;
+
+    /** 日付の描画スタイル */
+    private final Paint mCalendarDatePaint;
+
+    /** 曜日の描画スタイル */
+    private final Paint mCalendarDayOfWeekPaint;
+
+    /** 塗りつぶしの描画スタイル(Moto 360用の帯など) */
+    private final Paint mFillPaint;
+
+    /**
+     * コンストラクター
+     */
+    public RenderResources() {
+        // 短針の描画スタイルを設定する
+        mHourPaint = new Paint();
+        mHourPaint.setARGB(255, 0, 0, 0);
+        mHourPaint.setStrokeWidth(12.f);
+        mHourPaint.setAntiAlias(true);
+        mHourPaint.setStrokeCap(Paint.Cap.ROUND);
+
+        // 長針の描画スタイルを設定する
+        mMinutePaint = new Paint();
+        mMinutePaint.setARGB(255, 0, 0, 0);
+        mMinutePaint.setStrokeWidth(6.f);
+        mMinutePaint.setAntiAlias(true);
+        mMinutePaint.setStrokeCap(Paint.Cap.ROUND);
+
+        // 秒針の描画スタイルを設定する
+        mSecondPaint = new Paint();
+        mSecondPaint.setARGB(255, 255, 0, 0);
+        mSecondPaint.setStrokeWidth(3.f);
+        mSecondPaint.setAntiAlias(true);
+        mSecondPaint.setStrokeCap(Paint.Cap.ROUND);
+
+        // 秒針の先端部分の描画スタイルを設定する
+        mSecondTipPaint = new Paint();
+        mSecondTipPaint.setAntiAlias(true);
+        mSecondTipPaint.setColor(Color.RED);
+        mSecondTipPaint.setStrokeWidth(1.f);
+        mSecondTipPaint.setStyle(Paint.Style.FILL_AND_STROKE);
+
+        // 目盛り(小)の描画スタイルを設定する
+        mTickPaintSmall = new Paint();
+        mTickPaintSmall.setColor(Color.BLACK);
+        mTickPaintSmall.setStrokeWidth(2.f);
+        mTickPaintSmall.setAntiAlias(true);
+
+        // 目盛り(大)の描画スタイルを設定する
+        mTickPaintBig = new Paint();
+        mTickPaintBig.setColor(Color.BLACK);
+        mTickPaintBig.setStrokeWidth(8.f);
+        mTickPaintBig.setAntiAlias(true);
+
+        // バッテリーの残量の描画スタイルを設定する
+        mBatteryArcPaint = new Paint();
+        mBatteryArcPaint.setAntiAlias(true);
+        mBatteryArcPaint.setColor(Color.BLUE);
+        mBatteryArcPaint.setAlpha(100);
+        mBatteryArcPaint.setStrokeWidth(5.f);
+        mBatteryArcPaint.setStrokeCap(Paint.Cap.ROUND);
+        mBatteryArcPaint.setStyle(Paint.Style.STROKE);
+        mBatteryTipPaint = new Paint(mBatteryArcPaint);
+        mBatteryTipPaint.setStyle(Paint.Style.FILL_AND_STROKE);
+
+        // カレンダーの予定の描画スタイルを設定する
+        mEventLowerSidePaint = new Paint();
+        mEventLowerSidePaint.setAntiAlias(true);
+        mEventLowerSidePaint.setColor(Color.WHITE);
+        mEventLowerSidePaint.setStyle(Paint.Style.FILL_AND_STROKE);
+        mEventLowerSidePaint.setStrokeWidth(1.f);
+
+        mEventSidePaint = new Paint();
+        mEventSidePaint.setAntiAlias(true);
+        mEventSidePaint.setColor(Color.LTGRAY);
+        mEventSidePaint.setStyle(Paint.Style.STROKE);
+        mEventSidePaint.setStrokeWidth(2.f);
+
+        mEventBusyPaint = new Paint();
+        mEventBusyPaint.setAntiAlias(true);
+        mEventBusyPaint.setColor(Color.GRAY);
+        mEventBusyPaint.setStyle(Paint.Style.FILL);
+
+        mEventTitlePaint = new Paint();
+        mEventTitlePaint.setAntiAlias(true);
+        mEventTitlePaint.setColor(Color.BLACK);
+        mEventTitlePaint.setTextSize(11);
+        mEventTitlePaint.setTextAlign(Paint.Align.CENTER);
+
+        // カレンダーの次の予定の描画スタイルを設定する
+        mNextEventMessagePaint = new Paint();
+        mNextEventMessagePaint.setAntiAlias(true);
+        mNextEventMessagePaint.setColor(Color.GRAY);
+        mNextEventMessagePaint.setStyle(Paint.Style.FILL);
+        mNextEventMessagePaint.setTextSize(12);
+        mNextEventMessagePaint.setTextAlign(Paint.Align.CENTER);
+        mNextEventTimePaint = new Paint(mNextEventMessagePaint);
+        mNextEventTimePaint.setTextSize(18);
+
+        // 日付・曜日の描画スタイルを設定する
+        mCalendarFramePaint = new Paint();
+        mCalendarFramePaint.setAntiAlias(true); // グラフィックの描画を滑らかにする
+        mCalendarFramePaint.setStyle(Paint.Style.STROKE); // 線のスタイル
+        mCalendarFramePaint.setStrokeWidth(1.f); // 線の太さ
+        mCalendarFramePaint.setColor(Color.LTGRAY); // 色の設定
+        mCalendarOuterFramePaint = new Paint(mCalendarFramePaint);
+        mCalendarOuterFramePaint.setColor(Color.DKGRAY);
+
+        mCalendarDatePaint = new Paint();
+        mCalendarDatePaint.setAntiAlias(true);
+        mCalendarDatePaint.setTextSize(16);
+        mCalendarDatePaint.setTextAlign(Paint.Align.CENTER);
+        mCalendarDatePaint.setColor(Color.BLACK);
+        mCalendarDatePaint.setStyle(Paint.Style.FILL);
+        mCalendarDatePaint.setStrokeWidth(1.0f);
+        mCalendarDatePaint.setTypeface(Typeface.SERIF);
+        mCalendarDayOfWeekPaint = new Paint(mCalendarDatePaint);
+
+        // 塗りつぶしの描画スタイルを設定する
+        mFillPaint = new Paint();
+        mFillPaint.setColor(Color.BLACK);
+    }
+
+    /**
+     * ミュートモードかどうかに合わせて、針の透明度を設定する。
+     *
+     * @param mute ミュートモードの場合はtrue
+     */
+    public void setMute(final boolean mute) {
+        mHourPaint.setAlpha(mute ? 100 : 255);
+        mMinutePaint.setAlpha(mute ? 100 : 255);
+        mSecondPaint.setAlpha(mute ? 80 : 255);
+    }
+
+    /**
+     * 描画プロファイルに合わせて、針・バッテリー・カレンダーの予定の枠のアンチエイリアスを設定する。
+     * (文字盤は描画済みのビットマップを使うため変えない)
+     *
+     * @param antiAlias アンチエイリアスを使う場合はtrue
+     */
+    public void setAntiAlias(final boolean antiAlias) {
+        mHourPaint.setAntiAlias(antiAlias);
+        mMinutePaint.setAntiAlias(antiAlias);
+        mSecondPaint.setAntiAlias(antiAlias);
+        mSecondTipPaint.setAntiAlias(antiAlias);
+        mBatteryArcPaint.setAntiAlias(antiAlias);
+        mBatteryTipPaint.setAntiAlias(antiAlias);
+        mEventLowerSidePaint.setAntiAlias(antiAlias);
+        mEventSidePaint.setAntiAlias(antiAlias);
+        mEventBusyPaint.setAntiAlias(antiAlias);
+        for (int i = 0; i < mEventFillPaints.size(); i++) {
+            mEventFillPaints.valueAt(i).setAntiAlias(antiAlias);
+        }
+        mEventFillAntiAlias = antiAlias;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * カレンダーの予定の枠(上側)の描画スタイルを取得する。
+     * カレンダーの色ごとに一度だけ作成する。
+     *
+     * @param color カレンダーの色
+     * @return 描画スタイル
+     */
+    public Paint getEventFillPaint(final int color) {
+        Paint paint = mEventFillPaints.get(color);
+        if (paint == null) {
+            paint = new Paint();
+            paint.setAntiAlias(mEventFillAntiAlias);
+            paint.setColor(color);
+            paint.setStyle(Paint.Style.FILL);
+            mEventFillPaints.put(color, paint);
+        }
+        return paint;
+    }
+
+    /**
+     * 指定した予定に使われていないカレンダーの色の描画スタイルを破棄する。
+     * (予定の色が変わり続けても、保持する描画スタイルが増え続けないようにする)
+     *
+     * @param events カレンダーの予定
+     */
+    public void retainEventFillPaints(final CalendarEventStore events) {
+        for (int i = mEventFillPaints.size() - 1; i >= 0; i--) {
+            final int color = mEventFillPaints.keyAt(i);
+            boolean used = false;
+            for (int index = 0; (index < events.size()) && !used; index++) {
+                used = (events.getColor(index) == color);
+            }
+            if (!used) {
+                mEventFillPaints.removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * 短針の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getHourPaint() {
+        return mHourPaint;
+    }
+
+    /**
+     * 長針の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getMinutePaint() {
+        return mMinutePaint;
+    }
+
+    /**
+     * 秒針の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getSecondPaint() {
+        return mSecondPaint;
+    }
+
+    /**
+     * 秒針の先端部分の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getSecondTipPaint() {
+        return mSecondTipPaint;
+    }
+
+    /**
+     * 目盛り(小)の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getTickPaintSmall() {
+        return mTickPaintSmall;
+    }
+
+    /**
+     * 目盛り(大)の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getTickPaintBig() {
+        return mTickPaintBig;
+    }
+
+    /**
+     * バッテリーの残量(線)の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getBatteryArcPaint() {
+        return mBatteryArcPaint;
+    }
+
+    /**
+     * バッテリーの残量(先端)の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getBatteryTipPaint() {
+        return mBatteryTipPaint;
+    }
+
+    /**
+     * カレンダーの予定の枠(下側)の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getEventLowerSidePaint() {
+        return mEventLowerSidePaint;
+    }
+
+    /**
+     * カレンダーの予定の枠(左側・右側、円)の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getEventSidePaint() {
+        return mEventSidePaint;
+    }
+
+    /**
+     * まとめて描画するカレンダーの予定(予定あり)の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getEventBusyPaint() {
+        return mEventBusyPaint;
+    }
+
+    /**
+     * カレンダーの予定のタイトルの描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getEventTitlePaint() {
+        return mEventTitlePaint;
+    }
+
+    /**
+     * カレンダーの次の予定のメッセージの描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getNextEventMessagePaint() {
+        return mNextEventMessagePaint;
+    }
+
+    /**
+     * カレンダーの次の予定の残り時間の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getNextEventTimePaint() {
+        return mNextEventTimePaint;
+    }
+
+    /**
+     * 日付・曜日の枠の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getCalendarFramePaint() {
+        return mCalendarFramePaint;
+    }
+
+    /**
+     * 日付・曜日の外枠の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getCalendarOuterFramePaint() {
+        return mCalendarOuterFramePaint;
+    }
+
+    /**
+     * 日付の描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getCalendarDatePaint() {
+        return mCalendarDatePaint;
+    }
+
+    /**
+     * 曜日の描画スタイルを取得する。(色は曜日に合わせて設定する)
+     *
+     * @return 描画スタイル
+     */
+    public Paint getCalendarDayOfWeekPaint() {
+        return mCalendarDayOfWeekPaint;
+    }
+
+    /**
+     * 塗りつぶしの描画スタイルを取得する。
+     *
+     * @return 描画スタイル
+     */
+    public Paint getFillPaint() {
+        return mFillPaint;
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端末のタイムゾーンのオフセットと、その有効期間(前の切り替わり(夏時間の開始・終了)から
+ * 次の切り替わりまで)を保持するクラス。
+ *
+ * オフセットは一度計算すると次の切り替わりまで同じ値を返すため、
+ * 同じ期間の時刻を続けて変換する場合は{@link TimeZone#getOffset(long)}を呼ばない。
+ * 現在の規則に夏時間のないタイムゾーンは、切り替わりを探す間隔を1日から1週間に広げる。
+ * (過去の夏時間や標準時の変更は見つける必要があるため、探すこと自体は省かない)
+ * (スレッドごとにインスタンスを作成して利用する)
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class TimeZoneCache {
+
+    /** 切り替わりを探す間隔 */
+    private static final long SEARCH_STEP_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /** 切り替わりを探す回数(前後それぞれ1年分。見つからない場合は探した期間の端までを有効とする) */
+    private static final int MAX_SEARCH_STEPS = 366;
+
+    /** 夏時間のないタイムゾーンで切り替わりを探す間隔 */
+    private static final long STANDARD_SEARCH_STEP_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /** 夏時間のないタイムゾーンで切り替わりを探す回数(前後それぞれ1年分) */
+    private static final int MAX_STANDARD_SEARCH_STEPS = 53;
+
+    /**
+     * 1つのタイムゾーンのオフセットと、その有効期間
+     */
+    public static final class Zone {
+
+        /** タイムゾーン */
+        private final TimeZone mTimeZone;
+
+        /** オフセット(ミリ秒) */
+        private int mOffset;
+
+        /** オフセットの有効期間の開始時刻(前の切り替わり、または探した期間の始まり) */
+        private long mValidFrom = Long.MAX_VALUE;
+
+        /** オフセットの有効期間の終了時刻(次の切り替わり、または探した期間の終わり) */
+        private long mValidUntil = Long.MIN_VALUE;
+
+        /** 切り替わりを探す間隔 */
+        private final long mSearchStep;
+
+        /** 切り替わりを探す回数 */
+        private final int mMaxSearchSteps;
+
+        /**
+         * コンストラクター
+         *
+         * @param timeZone タイムゾーン
+         */
+        Zone(final TimeZone timeZone) {
+            mTimeZone = timeZone;
+            if (timeZone.useDaylightTime() || (timeZone.getDSTSavings() != 0)) {
+                mSearchStep = SEARCH_STEP_MILLIS;
+                mMaxSearchSteps = MAX_SEARCH_STEPS;
+            } else {
+                mSearchStep = STANDARD_SEARCH_STEP_MILLIS;
+                mMaxSearchSteps = MAX_STANDARD_SEARCH_STEPS;
+            }
+        }
+
+        /**
+         * タイムゾーンを取得する。
+         *
+         * @return タイムゾーン
+         */
+        public TimeZone getTimeZone() {
+            return mTimeZone;
+        }
+
+        /**
+         * タイムゾーンのIDを取得する。
+         *
+         * @return タイムゾーンのID
+         */
+        public String getId() {
+            return mTimeZone.getID();
+        }
+
+        /**
+         * 指定した時刻のオフセットを取得する。
+         *
+         * @param time 時刻(UTC)
+         * @return オフセット(ミリ秒)
+         */
+        public int getOffset(final long time) {
+            if ((time < mValidFrom) || (time >= mValidUntil)) {
+                load(time);
+            }
+            return mOffset;
+        }
+
+        /**
+         * 指定した時刻のオフセットと、その有効期間を計算する。
+         * 有効期間は指定した時刻の前後の切り替わりまでとし、期間内のどの時刻でも再計算しない。
+         *
+         * @param time 時刻(UTC)
+         */
+        private void load(final long time) {
+            mOffset = mTimeZone.getOffset(time);
+            mValidFrom = findTransition(time, -mSearchStep);
+            mValidUntil = findTransition(time, mSearchStep);
+        }
+
+        /**
+         * 指定した時刻から指定した方向に、オフセットが変わる時刻を探す。
+         * 一定の間隔でオフセットを調べ、変わった間隔の中を二分探索する。
+         *
+         * @param time 時刻(UTC)
+         * @param step 探す間隔(負の場合は過去の方向に探す)
+         * @return 過去の方向の場合は同じオフセットの最初の時刻、未来の方向の場合は
+         * オフセットが変わった後の最初の時刻(見つからない場合は探した期間の端)
+         */
+        private long findTransition(final long time, final long step) {
+            long same = time;
+            for (int i = 0; i < mMaxSearchSteps; i++) {
+                final long probe = same + step;
+                if (mTimeZone.getOffset(probe) != mOffset) {
+                    long changed = probe;
+                    while (Math.abs(changed - same) > 1) {
+                        final long mid = same + ((changed - same) / 2);
+                        if (mTimeZone.getOffset(mid) == mOffset) {
+                            same = mid;
+                        } else {
+                            changed = mid;
+                        }
+                    }
+                    return (step > 0) ? changed : same;
+                }
+                same = probe;
+            }
+            return same;
+        }
+    }
+
+    /** 端末のタイムゾーン */
+    private Zone mDeviceZone;
+
+    /**
+     * コンストラクター
+     *
+     * @param deviceTimeZone 端末のタイムゾーン
+     */
+    public TimeZoneCache(final TimeZone deviceTimeZone) {
+        mDeviceZone = new Zone(deviceTimeZone);
+    }
+
+    /**
+     * 端末のタイムゾーンを設定する。
+     *
+     * @param deviceTimeZone 端末のタイムゾーン
+     * @return タイムゾーンが変わった場合はtrue
+     */
+    public boolean setDeviceTimeZone(final TimeZone deviceTimeZone) {
+        if (deviceTimeZone.getID().equals(mDeviceZone.getId())) {
+            return false;
+        }
+        mDeviceZone = new Zone(deviceTimeZone);
+        return true;
+    }
+
+    /**
+     * 端末のタイムゾーンを取得する。
+     *
+     * @return 端末のタイムゾーン
+     */
+    public Zone getDeviceZone() {
+        return mDeviceZone;
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * カレンダーの予定のタイトル(円弧に沿って描画する文字列)の配置を保持するクラス。
+ *
+ * 予定ごとに、タイトルを描画する円弧と、円弧の長さに収まるように省略したタイトルを保持する。
+ * 時間が重なる予定(円弧の幅を分け合う予定)は文字が収まらないため、タイトルを描画しない。
+ * 省略したタイトルはタイトル・円弧の角度・文字の大きさの組み合わせごとに一度だけ計算し、
+ * 予定または円弧の形状が変わった時だけ計算し直す。
+ * 言語や書体が変わった場合は、文字の幅が変わるため、すべて破棄して計算し直す。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class TitleLayoutCache {
+
+    /** 省略記号 */
+    private static final String ELLIPSIS = "…";
+
+    /** タイトルのベースラインの円弧からのずれ(内側方向) */
+    public static final float BASELINE_OFFSET = 12;
+
+    /** タイトルの両端の余白 */
+    private static final float PADDING = 4;
+
+    /**
+     * 省略したタイトルを検索するためのキー
+     */
+    private static final class Key {
+
+        /** タイトル */
+        final String title;
+
+        /** 円弧の角度 */
+        final float sweepAngle;
+
+        /** 文字の大きさ */
+        final float textSize;
+
+        Key(final String title, final float sweepAngle, final float textSize) {
+            this.title = title;
+            this.sweepAngle = sweepAngle;
+            this.textSize = textSize;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return title.equals(other.title) && (sweepAngle == other.sweepAngle)
+                    && (textSize == other.textSize);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = title.hashCode();
+            result = (31 * result) + Float.floatToIntBits(sweepAngle);
+            result = (31 * result) + Float.floatToIntBits(textSize);
+            return result;
+        }
+    }
+
+    /**
+     * 省略したタイトル
+     */
+    private static final class Layout {
+
+        /** 描画する文字列(円弧に収まらない場合はnull) */
+        String text;
+
+        /** 最後に参照された世代 */
+        int generation;
+    }
+
+    /** 描画スタイル */
+    private final Paint mPaint;
+
+    /** 省略したタイトル(タイトル・円弧の角度・文字の大きさごと) */
+    private final Map<Key, Layout> mLayouts = new HashMap<>();
+
+    /** 予定ごとのタイトルを描画する円弧 */
+    private Path[] mPaths = new Path[0];
+
+    /** 予定ごとの描画する文字列 */
+    private String[] mTexts = new String[0];
+
+    /** 計算に使った円弧の形状の世代({@link EventRingGeometry#getGeneration()}) */
+    private int mGeometryGeneration = -1;
+
+    /** 計算に使った円弧の形状 */
+    private EventRingGeometry mGeometry;
+
+    /** 現在の世代 */
+    private int mGeneration = 0;
+
+    /** 計算に使った言語 */
+    private Locale mLocale;
+
+    /** 計算に使った書体 */
+    private Typeface mTypeface;
+
+    /**
+     * コンストラクター
+     *
+     * @param paint タイトルの描画スタイル
+     */
+    public TitleLayoutCache(final Paint paint) {
+        mPaint = paint;
+    }
+
+    /**
+     * 円弧の形状、言語、書体のいずれかが変わった場合だけ、タイトルの配置を計算し直す。
+     *
+     * @param geometry カレンダーの予定の円弧の形状
+     * @param oval     タイトルを描画する円
+     */
+    public void update(final EventRingGeometry geometry, final RectF oval) {
+        final Locale locale = Locale.getDefault();
+        final Typeface typeface = mPaint.getTypeface();
+        if ((locale != mLocale) || (typeface != mTypeface)) {
+            clear();
+            mLocale = locale;
+            mTypeface = typeface;
+        }
+        if ((geometry == mGeometry) && (geometry.getGeneration() == mGeometryGeneration)) {
+            return;
+        }
+        mGeometry = geometry;
+        mGeometryGeneration = geometry.getGeneration();
+        mGeneration++;
+
+        final CalendarEventStore store = geometry.getStore();
+        final int size = geometry.size();
+        if (mPaths.length < size) {
+            Path[] paths = new Path[size];
+            System.arraycopy(mPaths, 0, paths, 0, mPaths.length);
+            mPaths = paths;
+            mTexts = new String[size];
+        }
+
+        // タイトルを描画する円弧の半径(ベースラインの位置)
+        final float radius = (oval.width() / 2) - BASELINE_OFFSET;
+        final float textSize = mPaint.getTextSize();
+        for (int i = 0; i < size; i++) {
+            mTexts[i] = null;
+            if (!geometry.isVisible(i) || !geometry.isFullWidth(i)) {
+                continue;
+            }
+
+            // 円弧を設定する(作成済みの場合は再利用する)
+            if (mPaths[i] == null) {
+                mPaths[i] = new Path();
+            }
+            mPaths[i].rewind();
+            mPaths[i].addArc(oval, geometry.getStartAngle(i), geometry.getSweepAngle(i));
+
+            // 省略したタイトルを設定する
+            final String title = store.getTitle(i);
+            final float sweepAngle = geometry.getSweepAngle(i);
+            final Key key = new Key(title, sweepAngle, textSize);
+            Layout layout = mLayouts.get(key);
+            if (layout == null) {
+                layout = new Layout();
+                layout.text = ellipsize(title, (float) (Math.PI * radius * sweepAngle / 180));
+                mLayouts.put(key, layout);
+            }
+            layout.generation = mGeneration;
+            mTexts[i] = layout.text;
+        }
+
+        // 参照されなくなった省略したタイトルを破棄する
+        for (Iterator<Layout> it = mLayouts.values().iterator(); it.hasNext(); ) {
+            if (it.next().generation != mGeneration) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 描画する文字列を取得する。
+     *
+     * @param index 予定の番号
+     * @return 描画する文字列(円弧に収まらない場合はnull)
+     */
+    public String getText(final int index) {
+        return mTexts[index];
+    }
+
+    /**
+     * タイトルを描画する円弧を取得する。
+     *
+     * @param index 予定の番号
+     * @return 円弧
+     */
+    public Path getPath(final int index) {
+        return mPaths[index];
+    }
+
+    /**
+     * 保持している配置をすべて破棄する。次の{@link #update}ですべて計算し直す。
+     */
+    public void clear() {
+        mLayouts.clear();
+        mGeometry = null;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 指定した長さに収まるようにタイトルを省略する。
+     *
+     * @param title  タイトル
+     * @param length 円弧の長さ
+     * @return 省略したタイトル(1文字も収まらない場合はnull)
+     */
+    private String ellipsize(final String title, final float length) {
+        final float available = length - (PADDING * 2);
+        if (title.isEmpty() || (available <= 0)) {
+            return null;
+        }
+        if (mPaint.measureText(title) <= available) {
+            return title;
+        }
+        final int count = mPaint.breakText(title, true,
+                available - mPaint.measureText(ELLIPSIS), null);
+        return (count > 0) ? title.substring(0, count) + ELLIPSIS : null;
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+/**
+ * 文字盤上の角度の三角関数(sin、cos)を表から求めるユーティリティークラス
+ *
+ * 目盛り・秒・分(60分割)と、短針・カレンダーの予定(12時間を分単位に720分割)の角度は、
+ * 計算済みの表をそのまま参照する。それ以外の角度は細かい表を線形補間して求める。
+ * 角度はいずれも12時の方向を0とする時計回りの回転量で、文字盤上の座標は
+ * (中心X + sin × 半径, 中心Y - cos × 半径)になる。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public final class TrigTable {
+
+    /** 文字盤の1周の分数(12時間) */
+    public static final int DIAL_MINUTES = 720;
+
+    /** 文字盤の1周の目盛りの数 */
+    public static final int TICKS = 60;
+
+    /** 1目盛りあたりの分数 */
+    private static final int MINUTES_PER_TICK = DIAL_MINUTES / TICKS;
+
+    /** 細かい表の1周の分割数(2のべき乗) */
+    private static final int FINE_SIZE = 4096;
+
+    /** 文字盤の1周を720分割したsinの表 */
+    private static final float[] SIN_DIAL = new float[DIAL_MINUTES];
+
+    /** 文字盤の1周を720分割したcosの表 */
+    private static final float[] COS_DIAL = new float[DIAL_MINUTES];
+
+    /** 1周を{@link #FINE_SIZE}分割したsinの表(補間用に1周分の末尾を含む) */
+    private static final float[] SIN_FINE = new float[FINE_SIZE + 1];
+
+    static {
+        for (int i = 0; i < DIAL_MINUTES; i++) {
+            final double rot = i * Math.PI * 2 / DIAL_MINUTES;
+            SIN_DIAL[i] = (float) Math.sin(rot);
+            COS_DIAL[i] = (float) Math.cos(rot);
+        }
+        for (int i = 0; i <= FINE_SIZE; i++) {
+            SIN_FINE[i] = (float) Math.sin(i * Math.PI * 2 / FINE_SIZE);
+        }
+    }
+
+    /**
+     * インスタンス化できないようにするためにデフォルトコンストラクターを抑制する
+     */
+    private TrigTable() {
+        throw new AssertionError();
+    }
+
+    /**
+     * 目盛り(秒、分)の角度のsinを取得する。
+     *
+     * @param tick 目盛り(0 - 59、範囲外の値は1周で折り返す)
+     * @return sin
+     */
+    public static float sinTick(final int tick) {
+        return SIN_DIAL[dialIndex(tick * MINUTES_PER_TICK)];
+    }
+
+    /**
+     * 目盛り(秒、分)の角度のcosを取得する。
+     *
+     * @param tick 目盛り(0 - 59、範囲外の値は1周で折り返す)
+     * @return cos
+     */
+    public static float cosTick(final int tick) {
+        return COS_DIAL[dialIndex(tick * MINUTES_PER_TICK)];
+    }
+
+    /**
+     * 文字盤上の分(12時間を720分割した位置)の角度のsinを取得する。
+     *
+     * @param minute 文字盤上の分(0 - 719、範囲外の値は1周で折り返す)
+     * @return sin
+     */
+    public static float sinDialMinute(final int minute) {
+        return SIN_DIAL[dialIndex(minute)];
+    }
+
+    /**
+     * 文字盤上の分(12時間を720分割した位置)の角度のcosを取得する。
+     *
+     * @param minute 文字盤上の分(0 - 719、範囲外の値は1周で折り返す)
+     * @return cos
+     */
+    public static float cosDialMinute(final int minute) {
+        return COS_DIAL[dialIndex(minute)];
+    }
+
+    /**
+     * 任意の回転量の角度のsinを取得する。(細かい表を線形補間する)
+     *
+     * @param turns 回転量(1.0で1周)
+     * @return sin
+     */
+    public static float sinTurns(final float turns) {
+        final float position = turns * FINE_SIZE;
+        final float floor = (float) Math.floor(position);
+        final int index = ((int) floor) & (FINE_SIZE - 1);
+        final float fraction = position - floor;
+        return SIN_FINE[index] + ((SIN_FINE[index + 1] - SIN_FINE[index]) * fraction);
+    }
+
+    /**
+     * 任意の回転量の角度のcosを取得する。(細かい表を線形補間する)
+     *
+     * @param turns 回転量(1.0で1周)
+     * @return cos
+     */
+    public static float cosTurns(final float turns) {
+        return sinTurns(turns + 0.25f);
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 文字盤上の分を表の添字に変換する。
+     *
+     * @param minute 文字盤上の分
+     * @return 表の添字(0 - 719)
+     */
+    private static int dialIndex(final int minute) {
+        final int index = minute % DIAL_MINUTES;
+        return (index < 0) ? index + DIAL_MINUTES : index;
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CalendarEventTimeline}のテスト。
+ * 検索結果を、すべての予定を順に調べた結果と比較する。
+ * Androidのクラスに依存しないため、JVMでも実行できる。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public class CalendarEventTimelineTest extends TestCase {
+
+    /** 1分のミリ秒 */
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    public void testLongEventSpanningShortEvents() {
+        // 12時間の予定1件と、それにまたがる10分の予定60件(12分ごと)
+        List<CalendarEvent> events = new ArrayList<>();
+        events.add(createEvent(0, 720 * MINUTE_MILLIS));
+        for (int i = 0; i < 60; i++) {
+            final long start = i * 12 * MINUTE_MILLIS;
+            events.add(createEvent(start, start + (10 * MINUTE_MILLIS)));
+        }
+        CalendarEventTimeline timeline = new CalendarEventTimeline(CalendarEventStore.from(events));
+
+        // 終わり近くの期間には、長い予定と最後の短い予定だけが重なる
+        int[] result = new int[8];
+        final long last = 59 * 12 * MINUTE_MILLIS;
+        assertEquals(2, timeline.findOverlapping(last + MINUTE_MILLIS, last + (2 * MINUTE_MILLIS),
+                result));
+        assertEquals(0, result[0]);
+        assertEquals(60, result[1]);
+
+        // 長い予定の後には何も重ならない
+        assertEquals(0, timeline.findOverlapping(720 * MINUTE_MILLIS, 800 * MINUTE_MILLIS,
+                result));
+
+        // 格納しきれない分も数える(開始時刻が同じ場合は先に終わる予定が先)
+        assertEquals(61, timeline.findOverlapping(0, 720 * MINUTE_MILLIS, result));
+        assertEquals(1, result[0]);
+        assertEquals(0, result[1]);
+        assertEquals(2, result[2]);
+    }
+
+    public void testQueriesMatchLinearScan() {
+        final Random random = new Random(1);
+        for (int trial = 0; trial < 300; trial++) {
+            List<CalendarEvent> events = new ArrayList<>();
+            final int size = random.nextInt(60);
+            for (int i = 0; i < size; i++) {
+                final long start = random.nextInt(720) * MINUTE_MILLIS;
+                final long duration = (random.nextInt(10) == 0) ? random.nextInt(720)
+                        : random.nextInt(60);
+                CalendarEvent event = createEvent(start, start + (duration * MINUTE_MILLIS));
+                event.setAllDay(random.nextInt(20) == 0);
+                events.add(event);
+            }
+            final CalendarEventStore store = CalendarEventStore.from(events);
+            final CalendarEventTimeline timeline = new CalendarEventTimeline(store);
+
+            for (int query = 0; query < 20; query++) {
+                final long from = (random.nextInt(800) - 40) * MINUTE_MILLIS;
+                final long to = from + (random.nextInt(120) * MINUTE_MILLIS);
+
+                // 期間に重なる予定(開始時刻の昇順)
+                int[] result = new int[size];
+                final int count = timeline.findOverlapping(from, to, result);
+                int expected = 0;
+                for (int position = 0; position < timeline.size(); position++) {
+                    final int index = timeline.get(position);
+                    if ((store.getStart(index) < to) && (store.getEnd(index) > from)) {
+                        assertEquals(index, result[expected++]);
+                    }
+                }
+                assertEquals(expected, count);
+
+                // 現在の予定と次の予定
+                int current = -1;
+                int next = -1;
+                for (int position = timeline.size() - 1; position >= 0; position--) {
+                    final int index = timeline.get(position);
+                    if ((store.getStart(index) <= from) && (store.getEnd(index) > from)) {
+                        current = index;
+                    }
+                    if (store.getStart(index) > from) {
+                        next = index;
+                    }
+                }
+                assertEquals(current, timeline.findCurrent(from));
+                assertEquals(next, timeline.findNext(from));
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 予定を作成する。
+     *
+     * @param start 開始時刻
+     * @param end   終了時刻
+     * @return 予定
+     */
+    private static CalendarEvent createEvent(final long start, final long end) {
+        CalendarEvent event = new CalendarEvent();
+        event.setTitle("event");
+        event.setDtStart(start);
+        event.setDtEnd(end);
+        return event;
+    }
+}
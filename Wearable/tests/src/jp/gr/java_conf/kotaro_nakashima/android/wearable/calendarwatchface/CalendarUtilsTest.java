@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import junit.framework.TestCase;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CalendarUtils}のテスト。
+ * 日付の計算は{@link Calendar}で計算した結果と比較する。
+ * Androidのクラスに依存しないため、JVMでも実行できる。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public class CalendarUtilsTest extends TestCase {
+
+    /** UTC */
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    /** 夏時間のあるタイムゾーン */
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+    public void testParseDuration() {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final long day = TimeUnit.DAYS.toMillis(1);
+        assertEquals(day + (2 * hour), CalendarUtils.parseDuration("P1DT2H"));
+        assertEquals(-TimeUnit.MINUTES.toMillis(15), CalendarUtils.parseDuration("-PT15M"));
+        assertEquals(TimeUnit.MINUTES.toMillis(15), CalendarUtils.parseDuration("+PT15M"));
+        assertEquals(14 * day, CalendarUtils.parseDuration("P2W"));
+        assertEquals(0, CalendarUtils.parseDuration("PT0S"));
+        assertEquals(TimeUnit.SECONDS.toMillis(7200), CalendarUtils.parseDuration("PT7200S"));
+        assertEquals(day + hour + TimeUnit.MINUTES.toMillis(2) + TimeUnit.SECONDS.toMillis(3),
+                CalendarUtils.parseDuration("P1DT1H2M3S"));
+        assertEquals(hour + TimeUnit.SECONDS.toMillis(30), CalendarUtils.parseDuration("PT1H30S"));
+    }
+
+    public void testParseDurationRejectsMalformedInput() {
+        final String[] malformed = {
+                null, "", "P", "PT", "-P", "1D", "P1", "PT1", "P1DT", "PD", "PTH",
+                // 時・分・秒はTの後にだけ書ける
+                "P1M", "P1H", "P7200S", "PT1D", "PT1W",
+                // 単位の順序が逆、または重複している
+                "PT1S2H", "PT1M1H", "PT1H2H", "P1D2D", "P1D1W",
+                // 週は他の単位と組み合わせられない
+                "P1W1D", "P1WT1H",
+                // その他の文字、桁あふれ
+                "P1X", "P 1D", "P1DTT1H", "--PT1H", "PT99999999999999999999S",
+        };
+        for (String duration : malformed) {
+            assertEquals(duration, CalendarUtils.INVALID_DURATION,
+                    CalendarUtils.parseDuration(duration));
+        }
+    }
+
+    public void testFloorDivAndFloorMod() {
+        assertEquals(2, CalendarUtils.floorDiv(7, 3));
+        assertEquals(-3, CalendarUtils.floorDiv(-7, 3));
+        assertEquals(-3, CalendarUtils.floorDiv(7, -3));
+        assertEquals(-2, CalendarUtils.floorDiv(-6, 3));
+        assertEquals(1, CalendarUtils.floorMod(7, 3));
+        assertEquals(2, CalendarUtils.floorMod(-7, 3));
+        assertEquals(0, CalendarUtils.floorMod(-6, 3));
+    }
+
+    public void testEpochDayMatchesCalendar() {
+        // 1900-01-01 から 2100-12-31 まで1日ずつ比較する(うるう年・100年・400年の例外を含む)
+        Calendar calendar = new GregorianCalendar(UTC);
+        calendar.clear();
+        calendar.set(1900, Calendar.JANUARY, 1);
+        final long last = CalendarUtils.toEpochDay(2100, 12, 31);
+        for (long day = CalendarUtils.toEpochDay(1900, 1, 1); day <= last; day++) {
+            final int year = calendar.get(Calendar.YEAR);
+            final int month = calendar.get(Calendar.MONTH) + 1;
+            final int dayOfMonth = calendar.get(Calendar.DAY_OF_MONTH);
+            assertEquals(TimeUnit.MILLISECONDS.toDays(calendar.getTimeInMillis()), day);
+            assertEquals(day, CalendarUtils.toEpochDay(year, month, dayOfMonth));
+            assertEquals((year * 12L) + month - 1, CalendarUtils.getMonthIndex(day));
+            assertEquals(calendar.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY,
+                    CalendarUtils.getWeekday(day));
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+    }
+
+    public void testToUtcMillisAcrossDaylightSavingTime() {
+        // 夏時間の開始(2015-03-08 2:00 -> 3:00)と終了(2015-11-01 2:00 -> 1:00)の前後
+        final int[][] dates = {{2015, 3, 7}, {2015, 3, 8}, {2015, 3, 9},
+                {2015, 10, 31}, {2015, 11, 1}, {2015, 11, 2}};
+        for (int[] date : dates) {
+            final long day = CalendarUtils.toEpochDay(date[0], date[1], date[2]);
+            for (int minute = 0; minute < 24 * 60; minute += 15) {
+                final int hour = minute / 60;
+                final long expected = utc(NEW_YORK, date[0], date[1], date[2], hour, minute % 60);
+                assertEquals(date[1] + "/" + date[2] + " " + hour + ":" + (minute % 60), expected,
+                        CalendarUtils.toUtcMillis(day, TimeUnit.MINUTES.toMillis(minute),
+                                NEW_YORK));
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 指定したタイムゾーンのローカル時刻をUTCのミリ秒に変換する。
+     * (他のテストからも使う)
+     *
+     * @param timeZone タイムゾーン
+     * @param year     年
+     * @param month    月(1 - 12)
+     * @param day      日
+     * @param hour     時
+     * @param minute   分
+     * @return UTCのミリ秒
+     */
+    static long utc(final TimeZone timeZone, final int year, final int month, final int day,
+            final int hour, final int minute) {
+        Calendar calendar = new GregorianCalendar(timeZone);
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import junit.framework.TestCase;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface.CalendarUtilsTest.utc;
+
+/**
+ * {@link ClockSnapshot}のテスト。
+ * 固定の時刻を返す{@link Clock}から更新した時・分・秒・日付・曜日・オフセットを、
+ * {@link Calendar}で計算した結果と比較する。(日付・月・年の境界、夏時間の切り替わりの前後)
+ * Androidのクラスに依存しないため、JVMでも実行できる。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public class ClockSnapshotTest extends TestCase {
+
+    /** 1分のミリ秒 */
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** 境界の前後で調べる範囲(分) */
+    private static final int AROUND_MINUTES = 90;
+
+    /** 調べるタイムゾーン(夏時間のあるもの、30分・45分単位のオフセットのもの、日付を飛ばしたものを含む) */
+    private static final String[] TIME_ZONES = {"UTC", "Asia/Tokyo", "America/New_York",
+            "Europe/London", "Australia/Lord_Howe", "Asia/Kathmandu", "America/Santiago",
+            "Pacific/Apia"};
+
+    public void testDayMonthAndYearBoundaries() {
+        for (String id : TIME_ZONES) {
+            final TimeZone timeZone = TimeZone.getTimeZone(id);
+            // 日付・月・年の境界、うるう日、1970-01-01より前
+            assertAround(timeZone, utc(timeZone, 2015, 6, 2, 0, 0));
+            assertAround(timeZone, utc(timeZone, 2015, 7, 1, 0, 0));
+            assertAround(timeZone, utc(timeZone, 2016, 1, 1, 0, 0));
+            assertAround(timeZone, utc(timeZone, 2016, 2, 29, 0, 0));
+            assertAround(timeZone, utc(timeZone, 2016, 3, 1, 0, 0));
+            assertAround(timeZone, utc(timeZone, 1970, 1, 1, 0, 0));
+        }
+    }
+
+    public void testDaylightSavingTimeTransitions() {
+        for (String id : TIME_ZONES) {
+            final TimeZone timeZone = TimeZone.getTimeZone(id);
+            // 2015年と2016年のオフセットが変わる時刻をすべて調べる
+            final long from = utc(timeZone, 2015, 1, 1, 0, 0);
+            final long to = utc(timeZone, 2017, 1, 1, 0, 0);
+            for (long time = from; time < to; time += 30 * MINUTE_MILLIS) {
+                final long next = time + (30 * MINUTE_MILLIS);
+                if (timeZone.getOffset(time) != timeZone.getOffset(next)) {
+                    assertAround(timeZone, next);
+                }
+            }
+        }
+
+        // サモアは2011-12-30を飛ばした(UTC-10 -> UTC+14)
+        final TimeZone apia = TimeZone.getTimeZone("Pacific/Apia");
+        assertAround(apia, utc(apia, 2011, 12, 31, 0, 0));
+    }
+
+    public void testRandomTimes() {
+        final Random random = new Random(1);
+        for (String id : TIME_ZONES) {
+            final TimeZone timeZone = TimeZone.getTimeZone(id);
+            final FixedClock clock = new FixedClock();
+            final ClockSnapshot snapshot =
+                    new ClockSnapshot(new TimeZoneCache(timeZone).getDeviceZone());
+            Calendar calendar = new GregorianCalendar(timeZone);
+            for (int i = 0; i < 20000; i++) {
+                // 1950 - 2050年
+                clock.mTime = (long) ((random.nextDouble() - 0.2) * 100 * 365.25
+                        * TimeUnit.DAYS.toMillis(1));
+                snapshot.update(clock);
+                assertSnapshot(calendar, clock.mTime, snapshot);
+            }
+        }
+    }
+
+    public void testChangeZone() {
+        final FixedClock clock = new FixedClock();
+        final TimeZone tokyo = TimeZone.getTimeZone("Asia/Tokyo");
+        final TimeZone newYork = TimeZone.getTimeZone("America/New_York");
+        // 東京の2015-06-02 8:30は、ニューヨークの2015-06-01 19:30
+        clock.mTime = utc(tokyo, 2015, 6, 2, 8, 30);
+        final ClockSnapshot snapshot = new ClockSnapshot(new TimeZoneCache(tokyo).getDeviceZone());
+        snapshot.update(clock);
+        assertEquals(2, snapshot.getDayOfMonth());
+        assertEquals(8, snapshot.getHour());
+
+        snapshot.setZone(new TimeZoneCache(newYork).getDeviceZone());
+        snapshot.update(clock);
+        assertSnapshot(new GregorianCalendar(newYork), clock.mTime, snapshot);
+        assertEquals(1, snapshot.getDayOfMonth());
+        assertEquals(19, snapshot.getHour());
+        assertEquals(-TimeUnit.HOURS.toMillis(4), snapshot.getOffsetMillis());
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 時刻の前後を1分ごと(境界の直前・直後は1秒ごと)に調べる。
+     *
+     * @param timeZone タイムゾーン
+     * @param time     境界の時刻
+     */
+    private static void assertAround(final TimeZone timeZone, final long time) {
+        final FixedClock clock = new FixedClock();
+        final ClockSnapshot snapshot =
+                new ClockSnapshot(new TimeZoneCache(timeZone).getDeviceZone());
+        Calendar calendar = new GregorianCalendar(timeZone);
+        for (int minute = -AROUND_MINUTES; minute <= AROUND_MINUTES; minute++) {
+            clock.mTime = time + (minute * MINUTE_MILLIS);
+            snapshot.update(clock);
+            assertSnapshot(calendar, clock.mTime, snapshot);
+        }
+        for (long millis = -2000; millis <= 2000; millis += 250) {
+            clock.mTime = time + millis;
+            snapshot.update(clock);
+            assertSnapshot(calendar, clock.mTime, snapshot);
+        }
+    }
+
+    /**
+     * 時計の状態を、{@link Calendar}で計算した結果と比較する。
+     *
+     * @param calendar 比較に使うカレンダー(タイムゾーンを設定したもの)
+     * @param time     時刻
+     * @param snapshot 時計の状態
+     */
+    private static void assertSnapshot(final Calendar calendar, final long time,
+            final ClockSnapshot snapshot) {
+        calendar.setTimeInMillis(time);
+        final String message = calendar.getTimeZone().getID() + " @" + time;
+        final int offset = calendar.get(Calendar.ZONE_OFFSET) + calendar.get(Calendar.DST_OFFSET);
+        assertEquals(message, time, snapshot.getEpochMillis());
+        assertEquals(message, offset, snapshot.getOffsetMillis());
+        assertEquals(message, time + offset, snapshot.getLocalMillis());
+        assertEquals(message, calendar.get(Calendar.YEAR), snapshot.getYear());
+        assertEquals(message, calendar.get(Calendar.MONTH) + 1, snapshot.getMonth());
+        assertEquals(message, calendar.get(Calendar.DAY_OF_MONTH), snapshot.getDayOfMonth());
+        assertEquals(message, calendar.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY,
+                snapshot.getDayOfWeek());
+        assertEquals(message, calendar.get(Calendar.HOUR_OF_DAY), snapshot.getHour());
+        assertEquals(message, calendar.get(Calendar.MINUTE), snapshot.getMinute());
+        assertEquals(message, calendar.get(Calendar.SECOND), snapshot.getSecond());
+        assertEquals(message, CalendarUtils.toEpochDay(calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH)),
+                snapshot.getEpochDay());
+    }
+
+    /**
+     * 固定の時刻を返す{@link Clock}。
+     */
+    private static final class FixedClock implements Clock {
+
+        /** 返す時刻 */
+        long mTime;
+
+        @Override
+        public long currentTimeMillis() {
+            return mTime;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface.CalendarUtilsTest.utc;
+
+/**
+ * {@link EventRingGeometry}のテスト。
+ * 円弧の角度・半径と枠の線の端点、計算し直す条件(予定、ウォッチフェイスの大きさ、文字盤の位置)、
+ * 予定の数(10 - 2,000件)によらず描画する円弧の数に上限があることを検証する。
+ * Androidのクラスに依存しないため、JVMでも実行できる。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public class EventRingGeometryTest extends TestCase {
+
+    /** 1分のミリ秒 */
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** タイムゾーン */
+    private static final TimeZone TOKYO = TimeZone.getTimeZone("Asia/Tokyo");
+
+    /** レーンの数の上限(ウォッチフェイスと同じ値) */
+    private static final int MAX_LANES = 3;
+
+    /** 個別に描画する予定の数の上限(ウォッチフェイスと同じ値) */
+    private static final int MAX_DETAILED = 24;
+
+    /** 予定ありの区間の数の上限(間隔が円弧の最小の長さ(6分)より長い区間だけが分かれるため) */
+    private static final int MAX_BUSY = (720 / 6) + 1;
+
+    /** 調べる予定の数 */
+    private static final int[] SIZES = {10, 50, 200, 500, 1000, 2000};
+
+    /** 座標の許容誤差 */
+    private static final float DELTA = 1e-3f;
+
+    public void testArcAnglesAndSeparatorPoints() {
+        final ClockSnapshot now = createSnapshot(2015, 6, 1, 9, 0);
+        final long nine = now.getEpochMillis();
+        List<CalendarEvent> events = new ArrayList<>();
+        events.add(createEvent(nine, nine + (60 * MINUTE_MILLIS)));
+        events.add(createEvent(nine + (240 * MINUTE_MILLIS), nine + (300 * MINUTE_MILLIS)));
+        events.add(createEvent(nine + (270 * MINUTE_MILLIS), nine + (330 * MINUTE_MILLIS)));
+        final EventRingGeometry geometry = new EventRingGeometry(MAX_LANES, MAX_DETAILED);
+        geometry.update(new CalendarEventTimeline(CalendarEventStore.from(events)), 320, 320, now);
+
+        // 幅320: 中心(160, 160)、外側の円の半径125、内側の円の半径110
+        assertEquals(160f, geometry.getCenterX(), DELTA);
+        assertEquals(160f, geometry.getCenterY(), DELTA);
+        assertEquals(125f, geometry.getOuterRadius(), DELTA);
+        assertEquals(110f, geometry.getInnerRadius(), DELTA);
+
+        // 9:00 - 10:00 は9時の方向(180度)から30度。重なる予定がないため円弧の幅をすべて使う
+        assertTrue(geometry.isVisible(0));
+        assertEquals(180f, geometry.getStartAngle(0), DELTA);
+        assertEquals(30f, geometry.getSweepAngle(0), DELTA);
+        assertEquals(125f, geometry.getOuterRadius(0), DELTA);
+        assertEquals(110f, geometry.getInnerRadius(0), DELTA);
+        assertTrue(geometry.isFullWidth(0));
+
+        // 13:00 - 14:00 と 13:30 - 14:30 は1時の方向(300度)からで、円弧の幅を2つのレーンに分ける
+        assertEquals(300f, geometry.getStartAngle(1), DELTA);
+        assertEquals(315f, geometry.getStartAngle(2), DELTA);
+        assertEquals(125f, geometry.getOuterRadius(1), DELTA);
+        assertEquals(117.5f, geometry.getInnerRadius(1), DELTA);
+        assertEquals(117.5f, geometry.getOuterRadius(2), DELTA);
+        assertEquals(110f, geometry.getInnerRadius(2), DELTA);
+        assertFalse(geometry.isFullWidth(1));
+
+        // 外側のレーンの予定から順に描画する
+        assertEquals(3, geometry.getDrawCount());
+        assertEquals(0, geometry.getDrawIndex(0));
+        assertEquals(1, geometry.getDrawIndex(1));
+        assertEquals(2, geometry.getDrawIndex(2));
+
+        // 枠の線は内側の半径から外側の半径まで。9:00は中心の左、10:00は左上(300度)
+        final float[] points = geometry.getSeparatorPoints();
+        assertPoint(points, 0, 160 - 110, 160);
+        assertPoint(points, 2, 160 - 125, 160);
+        final float sin = (float) Math.sin(Math.toRadians(300));
+        final float cos = (float) Math.cos(Math.toRadians(300));
+        assertPoint(points, 4, 160 + (sin * 110), 160 - (cos * 110));
+        assertPoint(points, 6, 160 + (sin * 125), 160 - (cos * 125));
+
+        // 2つ目のレーンの予定の枠の線は、そのレーンの幅だけ(1:30は0時から45度)
+        final int offset = 2 * EventRingGeometry.SEPARATOR_POINTS_PER_EVENT;
+        final float sin45 = (float) Math.sin(Math.toRadians(45));
+        assertPoint(points, offset, 160 + (sin45 * 110), 160 - (sin45 * 110));
+        assertPoint(points, offset + 2, 160 + (sin45 * 117.5f), 160 - (sin45 * 117.5f));
+    }
+
+    public void testRebuildTriggers() {
+        final ClockSnapshot now = createSnapshot(2015, 6, 1, 9, 0);
+        final long nine = now.getEpochMillis();
+        List<CalendarEvent> events = new ArrayList<>();
+        events.add(createEvent(nine, nine + (60 * MINUTE_MILLIS)));
+        final CalendarEventTimeline timeline =
+                new CalendarEventTimeline(CalendarEventStore.from(events));
+        final EventRingGeometry geometry = new EventRingGeometry(MAX_LANES, MAX_DETAILED);
+
+        assertTrue(geometry.update(timeline, 320, 320, now));
+        assertEquals(1, geometry.getGeneration());
+
+        // 入力が同じ場合、同じ時の中で時刻が進んだ場合は計算し直さない
+        assertFalse(geometry.update(timeline, 320, 320, now));
+        assertFalse(geometry.update(timeline, 320, 320, createSnapshot(2015, 6, 1, 9, 59)));
+        assertEquals(1, geometry.getGeneration());
+
+        // 文字盤の位置(時)が変わった場合
+        assertTrue(geometry.update(timeline, 320, 320, createSnapshot(2015, 6, 1, 10, 0)));
+
+        // ウォッチフェイスの大きさが変わった場合
+        assertTrue(geometry.update(timeline, 400, 400, createSnapshot(2015, 6, 1, 10, 0)));
+        assertEquals(165f, geometry.getOuterRadius(), DELTA);
+
+        // 予定(索引)が変わった場合は、内容が同じでも計算し直す
+        final CalendarEventTimeline reloaded =
+                new CalendarEventTimeline(CalendarEventStore.from(events));
+        assertTrue(geometry.update(reloaded, 400, 400, createSnapshot(2015, 6, 1, 10, 0)));
+
+        // 無効にした場合
+        geometry.invalidate();
+        assertTrue(geometry.update(reloaded, 400, 400, createSnapshot(2015, 6, 1, 10, 0)));
+        assertEquals(5, geometry.getGeneration());
+    }
+
+    public void testDrawCountIsBounded() {
+        final TimeZoneCache.Zone zone = new TimeZoneCache(TOKYO).getDeviceZone();
+        final ClockSnapshot now = new ClockSnapshot(zone);
+        now.set(utc(TOKYO, 2015, 6, 1, 9, 0));
+        final long hourStart = EventWindow.getHourStart(now.getEpochMillis(), zone);
+        final Random random = new Random(1);
+        for (int size : SIZES) {
+            final CalendarEventTimeline timeline = createTimeline(random, hourStart, size);
+            final EventRingGeometry geometry = new EventRingGeometry(MAX_LANES, MAX_DETAILED);
+            assertTrue(geometry.update(timeline, 320, 320, now));
+
+            final int drawCount = geometry.getDrawCount();
+            final int busyCount = geometry.getBusyCount();
+            assertTrue(size + " events: draw " + drawCount, drawCount <= MAX_DETAILED);
+            assertTrue(size + " events: busy " + busyCount, busyCount <= MAX_BUSY);
+            int detailed = 0;
+            for (int i = 0; i < geometry.size(); i++) {
+                if (geometry.isVisible(i)) {
+                    detailed++;
+                }
+            }
+            assertEquals(detailed, drawCount);
+            if (size >= 200) {
+                // 予定が多い場合は上限まで個別に描画し、残りはまとめる
+                assertEquals(MAX_DETAILED, drawCount);
+                assertTrue(busyCount > 0);
+            }
+        }
+    }
+
+    public void testEmptyAndInvertedEventsAreSkipped() {
+        final TimeZoneCache.Zone zone = new TimeZoneCache(TOKYO).getDeviceZone();
+        final ClockSnapshot now = new ClockSnapshot(zone);
+        now.set(utc(TOKYO, 2015, 6, 1, 9, 0));
+        final long start = now.getEpochMillis();
+
+        List<CalendarEvent> events = new ArrayList<>();
+        events.add(createEvent(start, start + (60 * MINUTE_MILLIS)));
+        events.add(createEvent(start + (120 * MINUTE_MILLIS), start + (120 * MINUTE_MILLIS)));
+        events.add(createEvent(start + (240 * MINUTE_MILLIS), start + (180 * MINUTE_MILLIS)));
+        events.add(createEvent(start + (300 * MINUTE_MILLIS),
+                start + (300 * MINUTE_MILLIS) + TimeUnit.SECONDS.toMillis(30)));
+        final EventRingGeometry geometry = new EventRingGeometry(MAX_LANES, MAX_DETAILED);
+        geometry.update(new CalendarEventTimeline(CalendarEventStore.from(events)), 320, 320, now);
+
+        assertEquals(1, geometry.getDrawCount());
+        assertEquals(0, geometry.getDrawIndex(0));
+
+        // 長さ0の予定と終了時刻が開始時刻より前の予定は区間にせず、30秒の予定は30秒の長さのまま
+        assertEquals(1, geometry.getBusyCount());
+        assertEquals(0.25f, geometry.getBusySweepAngle(0), 1e-6f);
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 指定した時刻(東京)の時計の状態を作成する。
+     *
+     * @param year   年
+     * @param month  月(1 - 12)
+     * @param day    日
+     * @param hour   時
+     * @param minute 分
+     * @return 時計の状態
+     */
+    private static ClockSnapshot createSnapshot(final int year, final int month, final int day,
+            final int hour, final int minute) {
+        ClockSnapshot now = new ClockSnapshot(new TimeZoneCache(TOKYO).getDeviceZone());
+        now.set(utc(TOKYO, year, month, day, hour, minute));
+        return now;
+    }
+
+    /**
+     * 座標を検証する。
+     *
+     * @param points 座標の配列
+     * @param offset 座標の位置
+     * @param x      X軸の座標
+     * @param y      Y軸の座標
+     */
+    private static void assertPoint(final float[] points, final int offset, final float x,
+            final float y) {
+        assertEquals(x, points[offset], DELTA);
+        assertEquals(y, points[offset + 1], DELTA);
+    }
+
+    /**
+     * 表示範囲(12時間)に予定を乱数で作成する。
+     * 短い予定、長い予定、長さ0の予定、終了時刻が開始時刻より前の予定を含む。
+     * ({@link EventRingGeometryBenchmark}からも使う)
+     *
+     * @param random    乱数
+     * @param hourStart 表示範囲の開始時刻
+     * @param size      予定の数
+     * @return 予定の索引
+     */
+    static CalendarEventTimeline createTimeline(final Random random,
+            final long hourStart, final int size) {
+        List<CalendarEvent> events = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            final long start = hourStart + (random.nextInt(720) * MINUTE_MILLIS);
+            final long end = start + ((random.nextInt(130) - 10) * MINUTE_MILLIS);
+            events.add(createEvent(start, Math.min(end, hourStart + EventWindow.SPAN_MILLIS)));
+        }
+        return new CalendarEventTimeline(CalendarEventStore.from(events));
+    }
+
+    /**
+     * 予定を作成する。
+     *
+     * @param start 開始時刻
+     * @param end   終了時刻
+     * @return 予定
+     */
+    private static CalendarEvent createEvent(final long start, final long end) {
+        CalendarEvent event = new CalendarEvent();
+        event.setTitle("event");
+        event.setDtStart(start);
+        event.setDtEnd(end);
+        return event;
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface.CalendarUtilsTest.utc;
+
+/**
+ * {@link EventWindow}のテスト。
+ * 乱数で作った時刻・予定に対して、{@link Calendar}で計算した結果と同じ性質を満たすことを検証する。
+ * 夏時間の切り替わりと月・年の境界は、個別の時刻でも検証する。
+ * Androidのクラスに依存しないため、JVMでも実行できる。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public class EventWindowTest extends TestCase {
+
+    /** 1時間のミリ秒 */
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /** 調べるタイムゾーン(夏時間のあるもの、30分・45分単位のオフセットのものを含む) */
+    private static final String[] TIME_ZONES = {"UTC", "Asia/Tokyo", "America/New_York",
+            "Europe/London", "Asia/Kolkata", "Asia/Kathmandu", "America/Santiago"};
+
+    /** 1分のミリ秒 */
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** 夏時間のあるタイムゾーン */
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+    /** 調べる期間の開始時刻(2000-01-01) */
+    private static final long FROM = 946684800000L;
+
+    /** 調べる期間の長さ(約30年) */
+    private static final long SPAN = TimeUnit.DAYS.toMillis(365 * 30);
+
+    public void testHourStartMatchesCalendar() {
+        final Random random = new Random(1);
+        for (String id : TIME_ZONES) {
+            final TimeZoneCache.Zone zone =
+                    new TimeZoneCache(TimeZone.getTimeZone(id)).getDeviceZone();
+            Calendar calendar = new GregorianCalendar(zone.getTimeZone());
+            for (int i = 0; i < 20000; i++) {
+                final long time = FROM + (long) (random.nextDouble() * SPAN);
+                final long hourStart = EventWindow.getHourStart(time, zone);
+                assertTrue(hourStart <= time);
+                assertTrue(time - hourStart < HOUR_MILLIS);
+
+                // 現地時刻で同じ日・同じ時の0分0秒になる
+                // (夏時間の終わりに繰り返す1時間も、Calendarのフィールドで比較すれば区別できる)
+                calendar.setTimeInMillis(time);
+                final int day = calendar.get(Calendar.DAY_OF_YEAR);
+                final int hour = calendar.get(Calendar.HOUR_OF_DAY);
+                calendar.setTimeInMillis(hourStart);
+                final String message = id + " @" + time;
+                assertEquals(message, day, calendar.get(Calendar.DAY_OF_YEAR));
+                assertEquals(message, hour, calendar.get(Calendar.HOUR_OF_DAY));
+                assertEquals(message, 0, calendar.get(Calendar.MINUTE));
+                assertEquals(message, 0, calendar.get(Calendar.SECOND));
+                assertEquals(message, 0, calendar.get(Calendar.MILLISECOND));
+            }
+        }
+    }
+
+    public void testHourStartAcrossDaylightSavingTime() {
+        final TimeZoneCache.Zone zone = new TimeZoneCache(NEW_YORK).getDeviceZone();
+
+        // 夏時間の開始(2015-03-08 2:00 -> 3:00)の直後の3:30は、3:00(7:00 UTC)から
+        final long springForward = utc(NEW_YORK, 2015, 3, 8, 3, 0);
+        assertEquals(springForward,
+                EventWindow.getHourStart(springForward + (30 * MINUTE_MILLIS), zone));
+        assertEquals(springForward - HOUR_MILLIS,
+                EventWindow.getHourStart(springForward - 1, zone));
+
+        // 夏時間の終了(2015-11-01 2:00 -> 1:00)では1:30が2回ある。どちらもその回の1:00から
+        final TimeZone utc = TimeZone.getTimeZone("UTC");
+        final long firstOne = utc(utc, 2015, 11, 1, 5, 0);
+        final long secondOne = utc(utc, 2015, 11, 1, 6, 0);
+        assertEquals(firstOne, EventWindow.getHourStart(firstOne + (30 * MINUTE_MILLIS), zone));
+        assertEquals(secondOne, EventWindow.getHourStart(secondOne + (30 * MINUTE_MILLIS), zone));
+
+        // 30分の夏時間(ロード・ハウ島 2015-10-04 2:00 -> 2:30)
+        final TimeZone lordHowe = TimeZone.getTimeZone("Australia/Lord_Howe");
+        final TimeZoneCache.Zone lordHoweZone = new TimeZoneCache(lordHowe).getDeviceZone();
+        final long twoThirty = utc(lordHowe, 2015, 10, 4, 2, 30);
+        assertEquals(twoThirty - (30 * MINUTE_MILLIS),
+                EventWindow.getHourStart(twoThirty + (10 * MINUTE_MILLIS), lordHoweZone));
+        assertEquals(utc(lordHowe, 2015, 10, 4, 3, 0),
+                EventWindow.getHourStart(twoThirty + (30 * MINUTE_MILLIS), lordHoweZone));
+    }
+
+    public void testClampAcrossMonthAndYearBoundaries() {
+        final TimeZoneCache.Zone zone = new TimeZoneCache(NEW_YORK).getDeviceZone();
+        final int[][] dates = {{2015, 1, 31}, {2015, 2, 28}, {2016, 2, 29}, {2015, 4, 30},
+                {2015, 12, 31}};
+        for (int[] date : dates) {
+            // 月末の23:40の表示範囲は、23:00から翌月1日の11:00まで
+            final long now = utc(NEW_YORK, date[0], date[1], date[2], 23, 40);
+            final long hourStart = EventWindow.getHourStart(now, zone);
+            assertEquals(utc(NEW_YORK, date[0], date[1], date[2], 23, 0), hourStart);
+            final long hourEnd = hourStart + EventWindow.SPAN_MILLIS;
+            final int nextYear = (date[1] == 12) ? date[0] + 1 : date[0];
+            final int nextMonth = (date[1] == 12) ? 1 : date[1] + 1;
+            assertEquals(utc(NEW_YORK, nextYear, nextMonth, 1, 11, 0), hourEnd);
+
+            // 月末から翌月にまたがる予定と、翌月の表示範囲の後に始まる予定
+            CalendarEvent across = new CalendarEvent();
+            across.setDtStart(utc(NEW_YORK, date[0], date[1], date[2], 20, 0));
+            across.setDtEnd(utc(NEW_YORK, nextYear, nextMonth, 1, 13, 0));
+            CalendarEvent after = new CalendarEvent();
+            after.setDtStart(utc(NEW_YORK, nextYear, nextMonth, 1, 11, 0));
+            after.setDtEnd(utc(NEW_YORK, nextYear, nextMonth, 1, 12, 0));
+            List<CalendarEvent> events = new ArrayList<>();
+            events.add(across);
+            events.add(after);
+
+            EventWindow.clamp(events, hourStart);
+
+            assertEquals(1, events.size());
+            assertSame(across, events.get(0));
+            assertEquals(hourStart, across.getDtStart());
+            assertEquals(hourEnd, across.getDtEnd());
+        }
+    }
+
+    public void testClampKeepsOnlyEventsInsideWindow() {
+        final Random random = new Random(2);
+        final TimeZoneCache.Zone zone =
+                new TimeZoneCache(TimeZone.getTimeZone("America/New_York")).getDeviceZone();
+        for (int trial = 0; trial < 2000; trial++) {
+            final long hourStart = EventWindow.getHourStart(
+                    FROM + (long) (random.nextDouble() * SPAN), zone);
+            final long hourEnd = hourStart + EventWindow.SPAN_MILLIS;
+
+            // 表示範囲の前後にまたがる予定、範囲外の予定、終了時刻が開始時刻より前の予定を作る
+            List<CalendarEvent> events = new ArrayList<>();
+            List<CalendarEvent> expected = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                final long start = hourStart - EventWindow.SPAN_MILLIS
+                        + (long) (random.nextDouble() * 3 * EventWindow.SPAN_MILLIS);
+                final long end = start + (long) ((random.nextDouble() - 0.1) * 8 * HOUR_MILLIS);
+                CalendarEvent event = new CalendarEvent();
+                event.setEventId(i);
+                event.setDtStart(start);
+                event.setDtEnd(end);
+                events.add(event);
+                if ((start < hourEnd) && (end > hourStart) && (end >= start)) {
+                    expected.add(event);
+                }
+            }
+            if (trial == 0) {
+                // 表示範囲の終了の直後から12時間以内に始まる予定
+                CalendarEvent event = new CalendarEvent();
+                event.setDtStart(hourEnd + HOUR_MILLIS);
+                event.setDtEnd(hourEnd + (2 * HOUR_MILLIS));
+                events.add(event);
+            }
+
+            EventWindow.clamp(events, hourStart);
+
+            assertEquals(expected, events);
+            for (CalendarEvent event : events) {
+                assertTrue(event.getDtStart() >= hourStart);
+                assertTrue(event.getDtEnd() <= hourEnd);
+                assertTrue(event.getDtStart() <= event.getDtEnd());
+            }
+        }
+    }
+}
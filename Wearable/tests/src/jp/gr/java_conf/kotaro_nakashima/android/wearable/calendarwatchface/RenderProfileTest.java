@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import junit.framework.TestCase;
+
+import static jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface.RenderProfile.PROFILE_FULL;
+import static jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface.RenderProfile.PROFILE_SAVER;
+import static jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface.RenderProfile.PROFILE_ULTRA;
+
+/**
+ * {@link RenderProfile}のテスト。
+ * バッテリーの残量の境界(省電力は30%で切り替えて35%で戻す、超省電力は15%で切り替えて20%で戻す)、
+ * 充電中、ミュートモードの場合に選ぶ描画プロファイルを検証する。
+ * Androidのクラスに依存しないため、JVMでも実行できる。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public class RenderProfileTest extends TestCase {
+
+    public void testSaverHysteresis() {
+        // 通常から省電力へは30%以下で切り替える
+        assertEquals(PROFILE_FULL, select(PROFILE_FULL, 31));
+        assertEquals(PROFILE_SAVER, select(PROFILE_FULL, 30));
+
+        // 省電力から通常へは35%以上で戻す
+        assertEquals(PROFILE_SAVER, select(PROFILE_SAVER, 31));
+        assertEquals(PROFILE_SAVER, select(PROFILE_SAVER, 34));
+        assertEquals(PROFILE_FULL, select(PROFILE_SAVER, 35));
+    }
+
+    public void testUltraHysteresis() {
+        // 超省電力へは15%以下で切り替える(通常からも直接切り替える)
+        assertEquals(PROFILE_SAVER, select(PROFILE_SAVER, 16));
+        assertEquals(PROFILE_ULTRA, select(PROFILE_SAVER, 15));
+        assertEquals(PROFILE_ULTRA, select(PROFILE_FULL, 15));
+
+        // 超省電力から省電力へは20%以上、通常へは35%以上で戻す
+        assertEquals(PROFILE_ULTRA, select(PROFILE_ULTRA, 16));
+        assertEquals(PROFILE_ULTRA, select(PROFILE_ULTRA, 19));
+        assertEquals(PROFILE_SAVER, select(PROFILE_ULTRA, 20));
+        assertEquals(PROFILE_SAVER, select(PROFILE_ULTRA, 34));
+        assertEquals(PROFILE_FULL, select(PROFILE_ULTRA, 35));
+    }
+
+    public void testBatteryScale() {
+        // 残量は最大値に対する割合で比べる
+        assertEquals(PROFILE_SAVER, RenderProfile.select(PROFILE_FULL, 60, 200, false, false));
+        assertEquals(PROFILE_FULL, RenderProfile.select(PROFILE_FULL, 62, 200, false, false));
+
+        // 最大値が不明な場合は通常
+        assertEquals(PROFILE_FULL, RenderProfile.select(PROFILE_ULTRA, 0, 0, false, false));
+    }
+
+    public void testCharging() {
+        // 充電中は残量によらず通常
+        assertEquals(PROFILE_FULL, RenderProfile.select(PROFILE_ULTRA, 5, 100, true, false));
+        assertEquals(PROFILE_FULL, RenderProfile.select(PROFILE_SAVER, 25, 100, true, false));
+    }
+
+    public void testMute() {
+        // ミュートモードの間は省電力以上にする(充電中も同じ)
+        assertEquals(PROFILE_SAVER, RenderProfile.select(PROFILE_FULL, 100, 100, false, true));
+        assertEquals(PROFILE_SAVER, RenderProfile.select(PROFILE_FULL, 100, 100, true, true));
+        assertEquals(PROFILE_SAVER, RenderProfile.select(PROFILE_FULL, 25, 100, false, true));
+
+        // 残量が少ない場合は、バッテリーの残量の選択を優先する
+        assertEquals(PROFILE_ULTRA, RenderProfile.select(PROFILE_SAVER, 10, 100, false, true));
+        assertEquals(PROFILE_ULTRA, RenderProfile.select(PROFILE_ULTRA, 19, 100, false, true));
+
+        // ミュートモードを解除すると、省電力の戻す境界(35%)で判定する
+        assertEquals(PROFILE_SAVER, RenderProfile.select(PROFILE_SAVER, 34, 100, false, false));
+        assertEquals(PROFILE_FULL, RenderProfile.select(PROFILE_SAVER, 60, 100, false, false));
+    }
+
+    public void testFeatures() {
+        final int full = RenderProfile.getFeatures(PROFILE_FULL);
+        final int saver = RenderProfile.getFeatures(PROFILE_SAVER);
+        assertTrue((full & RenderProfile.FEATURE_SECOND_HAND) != 0);
+        assertTrue((full & RenderProfile.FEATURE_ANTI_ALIAS) != 0);
+        assertEquals(0, saver & (RenderProfile.FEATURE_SECOND_HAND
+                | RenderProfile.FEATURE_COUNTDOWN | RenderProfile.FEATURE_NEXT_EVENT_MESSAGE
+                | RenderProfile.FEATURE_EVENT_TITLES));
+        assertEquals(0, RenderProfile.getFeatures(PROFILE_ULTRA));
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * 充電していない、ミュートモードでない場合の描画プロファイルを選ぶ。
+     *
+     * @param current 現在の描画プロファイル
+     * @param percent バッテリーの残量(%)
+     * @return 描画プロファイル
+     */
+    private static int select(final int current, final int percent) {
+        return RenderProfile.select(current, percent, 100, false, false);
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import junit.framework.TestCase;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface.CalendarUtilsTest.utc;
+
+/**
+ * {@link TimeZoneCache}のテスト。
+ * Androidのクラスに依存しないため、JVMでも実行できる。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public class TimeZoneCacheTest extends TestCase {
+
+    /** 夏時間のあるタイムゾーン */
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+    /**
+     * {@link TimeZone#getOffset(long)}を呼んだ回数を数えるタイムゾーン
+     */
+    private static final class CountingTimeZone extends TimeZone {
+
+        private static final long serialVersionUID = 1L;
+
+        private final TimeZone mDelegate;
+
+        int mCount = 0;
+
+        CountingTimeZone(final TimeZone delegate) {
+            mDelegate = delegate;
+            setID(delegate.getID());
+        }
+
+        @Override
+        public int getOffset(final long date) {
+            mCount++;
+            return mDelegate.getOffset(date);
+        }
+
+        @Override
+        public int getOffset(final int era, final int year, final int month, final int day,
+                final int dayOfWeek, final int milliseconds) {
+            return mDelegate.getOffset(era, year, month, day, dayOfWeek, milliseconds);
+        }
+
+        /**
+         * 何もしない。(元のタイムゾーンのオフセットを変えないように、テストでは呼ばない)
+         */
+        @Override
+        public void setRawOffset(final int offsetMillis) {
+        }
+
+        @Override
+        public int getRawOffset() {
+            return mDelegate.getRawOffset();
+        }
+
+        @Override
+        public boolean useDaylightTime() {
+            return mDelegate.useDaylightTime();
+        }
+
+        @Override
+        public int getDSTSavings() {
+            return mDelegate.getDSTSavings();
+        }
+
+        @Override
+        public boolean inDaylightTime(final Date date) {
+            return mDelegate.inDaylightTime(date);
+        }
+    }
+
+    public void testOffsetsMatchTimeZone() {
+        final String[] ids = {"UTC", "Asia/Tokyo", "America/New_York", "Europe/London",
+                "Australia/Lord_Howe", "America/Santiago", "Asia/Kathmandu"};
+        final long from = utc(NEW_YORK, 2000, 1, 1, 0, 0);
+        final long span = TimeUnit.DAYS.toMillis(365 * 30);
+        final Random random = new Random(1);
+        for (String id : ids) {
+            final TimeZone timeZone = TimeZone.getTimeZone(id);
+            final TimeZoneCache.Zone zone = new TimeZoneCache(timeZone).getDeviceZone();
+            long time = from;
+            for (int i = 0; i < 20000; i++) {
+                // 連続した時刻と、離れた時刻を交互に調べる
+                time = ((i % 2) == 0) ? time + TimeUnit.MINUTES.toMillis(random.nextInt(600))
+                        : from + (long) (random.nextDouble() * span);
+                assertEquals(id + " @" + time, timeZone.getOffset(time), zone.getOffset(time));
+            }
+        }
+    }
+
+    public void testWholeIntervalBetweenTransitionsIsCached() {
+        // 2015年の夏時間は 3/8 7:00(UTC) から 11/1 6:00(UTC) まで
+        final TimeZone utc = TimeZone.getTimeZone("UTC");
+        final long dstStart = utc(utc, 2015, 3, 8, 7, 0);
+        final long dstEnd = utc(utc, 2015, 11, 1, 6, 0);
+        CountingTimeZone timeZone = new CountingTimeZone(NEW_YORK);
+        TimeZoneCache.Zone zone = new TimeZoneCache(timeZone).getDeviceZone();
+
+        final long summer = utc(NEW_YORK, 2015, 7, 1, 0, 0);
+        assertEquals(NEW_YORK.getOffset(summer), zone.getOffset(summer));
+        final int loadCount = timeZone.mCount;
+
+        // 読み込んだ時刻より前でも、同じ期間の時刻は再計算しない
+        assertEquals(NEW_YORK.getOffset(dstStart), zone.getOffset(dstStart));
+        assertEquals(NEW_YORK.getOffset(dstStart), zone.getOffset(dstEnd - 1));
+        assertEquals(loadCount, timeZone.mCount);
+
+        // 切り替わりの前後は再計算する
+        assertEquals(NEW_YORK.getOffset(dstEnd), zone.getOffset(dstEnd));
+        assertTrue(timeZone.mCount > loadCount);
+        assertEquals(NEW_YORK.getOffset(dstStart - 1), zone.getOffset(dstStart - 1));
+    }
+
+    public void testZoneWithoutDaylightSavingTimeSearchesWeekly() {
+        final TimeZone tokyo = TimeZone.getTimeZone("Asia/Tokyo");
+        CountingTimeZone timeZone = new CountingTimeZone(tokyo);
+        TimeZoneCache.Zone zone = new TimeZoneCache(timeZone).getDeviceZone();
+
+        // 時刻と、前後1年を1週間ごとに調べる(1日ごとの場合は733回)
+        final long time = utc(tokyo, 2015, 6, 1, 0, 0);
+        assertEquals(tokyo.getOffset(time), zone.getOffset(time));
+        assertEquals(1 + (2 * 53), timeZone.mCount);
+        assertEquals(tokyo.getOffset(time), zone.getOffset(time - TimeUnit.DAYS.toMillis(365)));
+        assertEquals(tokyo.getOffset(time), zone.getOffset(time + TimeUnit.DAYS.toMillis(365)));
+        assertEquals(1 + (2 * 53), timeZone.mCount);
+
+        // 過去の夏時間(1948 - 1951年)は見つける
+        final long summer = utc(tokyo, 1950, 7, 1, 0, 0);
+        assertEquals(tokyo.getOffset(summer), zone.getOffset(summer));
+        final long winter = utc(tokyo, 1950, 12, 1, 0, 0);
+        assertEquals(tokyo.getOffset(winter), zone.getOffset(winter));
+        assertFalse(zone.getOffset(summer) == zone.getOffset(winter));
+    }
+
+    public void testZoneWithoutDaylightSavingTimeFindsStandardTimeChange() {
+        // ネパールは1986-01-01に標準時を+5:30から+5:45に変えた(現在は夏時間がない)
+        final TimeZone kathmandu = TimeZone.getTimeZone("Asia/Kathmandu");
+        final long change = utc(kathmandu, 1986, 1, 1, 0, 0);
+        final TimeZoneCache.Zone zone = new TimeZoneCache(kathmandu).getDeviceZone();
+        final long[] times = {change - TimeUnit.DAYS.toMillis(100), change - 1, change,
+                change + TimeUnit.DAYS.toMillis(100), change - TimeUnit.DAYS.toMillis(100)};
+        for (long time : times) {
+            assertEquals("@" + time, kathmandu.getOffset(time), zone.getOffset(time));
+        }
+    }
+
+    public void testDeviceTimeZoneChange() {
+        TimeZoneCache cache = new TimeZoneCache(NEW_YORK);
+        assertFalse(cache.setDeviceTimeZone(TimeZone.getTimeZone("America/New_York")));
+        final TimeZoneCache.Zone zone = cache.getDeviceZone();
+        assertTrue(cache.setDeviceTimeZone(TimeZone.getTimeZone("Asia/Tokyo")));
+        assertNotSame(zone, cache.getDeviceZone());
+        assertEquals("Asia/Tokyo", cache.getDeviceZone().getId());
+    }
+}
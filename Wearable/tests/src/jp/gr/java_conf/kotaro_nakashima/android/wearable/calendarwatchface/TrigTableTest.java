@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2015 Kotaro Nakashima
+ */
+package jp.gr.java_conf.kotaro_nakashima.android.wearable.calendarwatchface;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link TrigTable}のテスト。
+ * Math.sin、Math.cosとの誤差の最大値を検証する。(速度の比較は{@link TrigTableBenchmark})
+ * Androidのクラスに依存しないため、JVMでも実行できる。
+ *
+ * @author Kotaro Nakashima
+ * @since 1.0.0.0
+ */
+public class TrigTableTest extends TestCase {
+
+    /** 720分割の表の誤差の上限(floatの丸め誤差) */
+    private static final double DIAL_TOLERANCE = 1e-7;
+
+    /** 4096分割の表を線形補間した場合の誤差の上限 */
+    private static final double FINE_TOLERANCE = 2e-6;
+
+    public void testDialTableError() {
+        double maxError = 0;
+        for (int minute = 0; minute < TrigTable.DIAL_MINUTES; minute++) {
+            final double rot = minute * Math.PI * 2 / TrigTable.DIAL_MINUTES;
+            maxError = Math.max(maxError,
+                    Math.abs(TrigTable.sinDialMinute(minute) - Math.sin(rot)));
+            maxError = Math.max(maxError,
+                    Math.abs(TrigTable.cosDialMinute(minute) - Math.cos(rot)));
+        }
+        assertTrue("max error " + maxError, maxError <= DIAL_TOLERANCE);
+    }
+
+    public void testTickTableMatchesDialTable() {
+        for (int tick = -TrigTable.TICKS; tick < 2 * TrigTable.TICKS; tick++) {
+            final double rot = tick * Math.PI * 2 / TrigTable.TICKS;
+            assertEquals(Math.sin(rot), TrigTable.sinTick(tick), DIAL_TOLERANCE);
+            assertEquals(Math.cos(rot), TrigTable.cosTick(tick), DIAL_TOLERANCE);
+        }
+    }
+
+    public void testFineTableError() {
+        double maxError = 0;
+        for (int i = 0; i < 1000000; i++) {
+            final float turns = i / 1000000f;
+            final double rot = turns * Math.PI * 2;
+            maxError = Math.max(maxError, Math.abs(TrigTable.sinTurns(turns) - Math.sin(rot)));
+            maxError = Math.max(maxError, Math.abs(TrigTable.cosTurns(turns) - Math.cos(rot)));
+        }
+        assertTrue("max error " + maxError, maxError <= FINE_TOLERANCE);
+
+        // 負の回転量、1周を超える回転量も折り返す
+        assertEquals(Math.sin(-0.1 * Math.PI * 2), TrigTable.sinTurns(-0.1f), FINE_TOLERANCE);
+        assertEquals(Math.cos(1.3 * Math.PI * 2), TrigTable.cosTurns(1.3f), FINE_TOLERANCE);
+    }
+}